@@ -0,0 +1,69 @@
+package tsp;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Inputs shared by the benchmarks. Every generator is seeded, so each benchmark
+ * sees the same cities and tours on every run.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Cities spread over the 600x600 map, the same for every benchmark with the same seed.
+     */
+    static City[] randomCities(int cityCount, long seed) {
+        Random random = new Random(seed);
+        City[] cities = new City[cityCount];
+        for (int i = 0; i < cityCount; i++) {
+            cities[i] = new City(random.nextInt(600), random.nextInt(600));
+        }
+        return cities;
+    }
+
+    /**
+     * The cities moved the way TSP.MoveCities does, each shifting 60 in one of four directions,
+     * but with the given chance of moving at all (TSP.MoveCities moves 0.8 of them).
+     */
+    static City[] shiftedCities(City[] cities, double movedFraction, long seed) {
+        Random random = new Random(seed);
+        City[] shifted = new City[cities.length];
+        for (int i = 0; i < cities.length; i++) {
+            int direction = random.nextDouble() < movedFraction ? 1 + random.nextInt(4) : 0;
+            int x = cities[i].getx() + (direction == 2 ? 60 : direction == 4 ? -60 : 0);
+            int y = cities[i].gety() + (direction == 1 ? 60 : direction == 3 ? -60 : 0);
+            shifted[i] = new City(x, y);
+        }
+        return shifted;
+    }
+
+    static int[] randomTour(int cityCount, long seed) {
+        Random random = new Random(seed);
+        int[] tour = new int[cityCount];
+        for (int i = 0; i < cityCount; i++) {
+            tour[i] = i;
+        }
+        for (int i = cityCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = tour[i];
+            tour[i] = tour[j];
+            tour[j] = temp;
+        }
+        return tour;
+    }
+
+    /**
+     * Random tours rather than nearest neighbour seeds, so large instances set up quickly.
+     */
+    static Chromosome[] randomPopulation(DistanceMatrix distances, int populationSize) {
+        Chromosome[] population = new Chromosome[populationSize];
+        SplittableRandom random = new SplittableRandom(populationSize);
+        for (int i = 0; i < populationSize; i++) {
+            population[i] = new Chromosome(distances, randomTour(distances.size(), i), random);
+        }
+        return population;
+    }
+}
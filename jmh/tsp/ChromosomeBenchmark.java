@@ -0,0 +1,92 @@
+package tsp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building, costing and mutating a single tour.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChromosomeBenchmark {
+
+    @Param({"50", "1000", "10000"})
+    int cities;
+
+    private City[] layout;
+
+    /**
+     * The matrix picked for the city count, and one that costs tours from the coordinates.
+     */
+    private DistanceMatrix distances;
+    private DistanceMatrix onTheFly;
+
+    private Chromosome chromosome;
+
+    @Setup
+    public void setup() {
+        layout = BenchmarkData.randomCities(cities, 42);
+        distances = new DistanceMatrix(layout, null);
+        onTheFly = new DistanceMatrix(layout, DistanceMatrix.Mode.ON_THE_FLY);
+        chromosome = new Chromosome(distances, BenchmarkData.randomTour(cities, 1));
+    }
+
+    /**
+     * The nearest neighbour tour every run is seeded with.
+     */
+    @Benchmark
+    public double nearestNeighbourTour() {
+        return new Chromosome(distances, new int[0]).getCost();
+    }
+
+    @Benchmark
+    public double calculateCostFromCities() {
+        chromosome.calculateCost(layout);
+        return chromosome.getCost();
+    }
+
+    @Benchmark
+    public double calculateCostFromMatrix() {
+        chromosome.calculateCost(distances);
+        return chromosome.getCost();
+    }
+
+    @Benchmark
+    public double calculateCostBlocked() {
+        onTheFly.useBlockedKernel(true);
+        chromosome.calculateCost(onTheFly);
+        return chromosome.getCost();
+    }
+
+    @Benchmark
+    public double calculateCostScalar() {
+        onTheFly.useBlockedKernel(false);
+        chromosome.calculateCost(onTheFly);
+        return chromosome.getCost();
+    }
+
+    @Benchmark
+    public int[] inversion() {
+        return chromosome.inversion();
+    }
+
+    @Benchmark
+    public int proposeInversion() {
+        return chromosome.proposeInversion(distances);
+    }
+}
@@ -0,0 +1,57 @@
+package tsp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Distances between cities, one at a time and for a whole matrix.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CityBenchmark {
+
+    @Param({"50", "1000", "10000"})
+    int cities;
+
+    private City[] layout;
+    private DistanceMatrix distances;
+
+    /**
+     * Which pair of cities the next proximity call measures.
+     */
+    private int next;
+
+    @Setup
+    public void setup() {
+        layout = BenchmarkData.randomCities(cities, 42);
+        distances = new DistanceMatrix(layout, null);
+    }
+
+    @Benchmark
+    public int proximity() {
+        int i = next;
+        next = i + 1 == layout.length ? 0 : i + 1;
+        return layout[i].proximity(layout[layout.length - 1 - i]);
+    }
+
+    @Benchmark
+    public int rebuildDistances() {
+        distances.rebuild(layout);
+        return distances.distance(0, layout.length - 1);
+    }
+}
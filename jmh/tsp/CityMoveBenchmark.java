@@ -0,0 +1,74 @@
+package tsp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bringing a population's costs up to date after the cities move, by rebuilding and
+ * re-evaluating everything or by correcting only the edges that changed.
+ *
+ * Each invocation flips between the original and the shifted layout.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CityMoveBenchmark {
+
+    @Param({"50", "1000", "10000"})
+    int cities;
+
+    @Param({"100", "1000"})
+    int population;
+
+    /**
+     * The share of cities that move, 0.8 as in TSP.MoveCities.
+     */
+    @Param({"0.8", "0.01"})
+    double moved;
+
+    private City[][] layouts;
+    private int layout;
+    private DistanceMatrix distances;
+    private Chromosome[] chromosomes;
+    private PopulationEvaluator evaluator;
+
+    @Setup
+    public void setup() {
+        City[] original = BenchmarkData.randomCities(cities, 42);
+        layouts = new City[][] {original, BenchmarkData.shiftedCities(original, moved, 7)};
+        distances = new DistanceMatrix(original, null);
+        chromosomes = BenchmarkData.randomPopulation(distances, population);
+        evaluator = new PopulationEvaluator(1);
+    }
+
+    @Benchmark
+    public double rebuildAndEvaluate() {
+        layout ^= 1;
+        distances.rebuild(layouts[layout]);
+        evaluator.evaluate(chromosomes, distances);
+        return chromosomes[0].getCost();
+    }
+
+    @Benchmark
+    public double cityMoves() {
+        layout ^= 1;
+        CityMoves moves = new CityMoves(distances, layouts[layout]);
+        moves.commit();
+        moves.adjust(chromosomes);
+        return chromosomes[0].getCost();
+    }
+}
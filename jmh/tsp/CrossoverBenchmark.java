@@ -0,0 +1,57 @@
+package tsp;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One child from two nearest neighbour parents, for each crossover operator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CrossoverBenchmark {
+
+    @Param({"50", "1000", "10000"})
+    int cities;
+
+    @Param({"OX", "PMX", "EAX"})
+    Crossover.Operator operator;
+
+    private DistanceMatrix distances;
+    private NeighbourLists neighbours;
+    private SplittableRandom random;
+    private Chromosome first;
+    private Chromosome second;
+    private Crossover crossover;
+
+    @Setup
+    public void setup() {
+        distances = new DistanceMatrix(BenchmarkData.randomCities(cities, 42), null);
+        neighbours = distances.neighbourLists(8);
+        random = new SplittableRandom(1);
+        first = new Chromosome(distances, new int[0], random);
+        second = new Chromosome(distances, new int[0], random);
+        crossover = new Crossover(cities);
+    }
+
+    @Benchmark
+    public double cross() {
+        return crossover.cross(operator, first.cityList, first.getCost(), second.cityList, crossover.child(),
+                distances, neighbours, random);
+    }
+}
@@ -0,0 +1,84 @@
+package tsp;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole populations: sorting and one generation of evolution, with Chromosome objects and with a TourPool.
+ *
+ * The populations carry on evolving from one invocation to the next, as they do in a run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PopulationBenchmark {
+
+    @Param({"50", "1000", "10000"})
+    int cities;
+
+    @Param({"100", "1000"})
+    int population;
+
+    private DistanceMatrix distances;
+    private Chromosome[] chromosomes;
+    private TourPool pool;
+    private TourPool compactPool;
+    private PopulationEvaluator evaluator;
+    private Random costs;
+
+    @Setup
+    public void setup() {
+        distances = new DistanceMatrix(BenchmarkData.randomCities(cities, 42), null);
+        chromosomes = BenchmarkData.randomPopulation(distances, population);
+        pool = new TourPool(population, cities, new SplittableRandom(1));
+        pool.load(BenchmarkData.randomPopulation(distances, population));
+        compactPool = new TourPool(population, cities, new SplittableRandom(1), true);
+        compactPool.load(BenchmarkData.randomPopulation(distances, population));
+        evaluator = new PopulationEvaluator(1);
+        costs = new Random(7);
+    }
+
+    @Benchmark
+    public double sortChromosomes() {
+        //shuffle the costs around so every call has sorting to do
+        for (Chromosome chromosome : chromosomes) {
+            chromosome.cost = costs.nextInt(1000000);
+        }
+        Chromosome.sortChromosomes(chromosomes, chromosomes.length);
+        return chromosomes[0].getCost();
+    }
+
+    @Benchmark
+    public double evolve() {
+        TSP.evolve(chromosomes, distances);
+        return chromosomes[0].getCost();
+    }
+
+    @Benchmark
+    public double evolvePool() {
+        pool.evolve(distances, evaluator, RunMetrics.unrecorded);
+        return pool.getCost(0);
+    }
+
+    @Benchmark
+    public double evolveCompactPool() {
+        compactPool.evolve(distances, evaluator, RunMetrics.unrecorded);
+        return compactPool.getCost(0);
+    }
+}
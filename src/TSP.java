@@ -1,361 +0,0 @@
-import java.awt.*;
-import java.io.*;
-import java.text.*;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.Random;
-import java.util.ArrayList;
-
-import javax.swing.*;
-
-public class TSP {
-
-	private static final int cityShiftAmount = 60; //DO NOT CHANGE THIS.
-	
-    /**
-     * How many cities to use.
-     */
-    /*GIVEN*/protected static int cityCount;
-
-    /**
-     * How many chromosomes to use.
-     */
-    /*GIVEN*/protected static int populationSize = 100; //DO NOT CHANGE THIS.
-
-    /**
-     * The part of the population eligable for mating.
-     */
-    /*GIVEN*/protected static int matingPopulationSize;
-
-    /**
-     * The part of the population selected for mating.
-     */
-    /*GIVEN*/protected static int selectedParents;
-
-    /**
-     * The current generation
-     */
-    /*GIVEN*/protected static int generation;
-
-    /**
-     * The list of cities (with current movement applied).
-     */
-    /*GIVEN*/protected static City[] cities;
-    
-    /**
-     * The list of cities that will be used to determine movement.
-     */
-    /*GIVEN*/private static City[] originalCities;
-
-    /**
-     * The list of chromosomes.
-     */
-    /*GIVEN*/protected static Chromosome[] chromosomes;
-
-    /**
-    * Frame to display cities and paths
-    */
-    /*GIVEN*/private static JFrame frame;
-
-    /**
-     * Integers used for statistical data
-     */
-    /*GIVEN*/private static double min;
-    /*GIVEN*/private static double avg;
-    /*GIVEN*/private static double max;
-    /*GIVEN*/private static double sum;
-    /*GIVEN*/private static double genMin;
-
-    /**
-     * Width and Height of City Map, DO NOT CHANGE THESE VALUES!
-     */
-    /*GIVEN*/private static int width = 600;
-    /*GIVEN*/private static int height = 600;
-
-
-    /*GIVEN*/private static Panel statsArea;
-    /*GIVEN*/private static TextArea statsText;
-
-
-    /**
-     * Writing to an output file with the costs.
-     */
-    /*GIVEN*/private static void writeLog(String content) {
-        String filename = "results.out";
-        FileWriter out;
-
-        try {
-            out = new FileWriter(filename, true);
-            out.write(content + "\n");
-            out.close();
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * Deals with printing same content to System.out and GUI
-     */
-    /*GIVEN*/private static void print(boolean guiEnabled, String content) {
-        if(guiEnabled) {
-            statsText.append(content + "\n");
-        }
-
-        System.out.println(content);
-    }
-
-    /*WRITTEN*/public static void evolve() {
-        //establish the current costs
-        for(Chromosome chromosome: chromosomes){
-            chromosome.calculateCost(cities);
-        }
-
-        //shortest route first
-        Chromosome.sortChromosomes(chromosomes, chromosomes.length);
-
-        int last_index = populationSize-1;
-
-        for(int i=0; i<populationSize; ++i){
-            chromosomes[last_index] = null;
-
-            //chromosomes[0] is the best from the previous generation, so use it to form the next generation
-            int[] mutatedParent = chromosomes[0].inversion();
-            //replace the worst performing chromosome with a child of the best performing chromosome
-            chromosomes[last_index] = new Chromosome(cities, mutatedParent);
-
-            //if we ended up creating a better chromosome, replace the best chromosome with the current chromosome
-            if(chromosomes[last_index].getCost()<chromosomes[0].getCost()){
-                chromosomes[0]=chromosomes[last_index];
-            }
-
-            else if(i!=last_index){
-                if(chromosomes[last_index].getCost()<chromosomes[last_index-1].getCost()){
-                    //this maintains the ordering
-                    chromosomes[last_index-1]=chromosomes[last_index];
-                }
-            }
-        }
-    }
-
-    /**
-     * Update the display
-     */
-    /*GIVEN*/public static void updateGUI() {
-        Image img = frame.createImage(width, height);
-        Graphics g = img.getGraphics();
-        FontMetrics fm = g.getFontMetrics();
-
-        g.setColor(Color.black);
-        g.fillRect(0, 0, width, height);
-
-        if (true && (cities != null)) {
-            for (int i = 0; i < cityCount; i++) {
-                int xpos = cities[i].getx();
-                int ypos = cities[i].gety();
-                g.setColor(Color.green);
-                g.fillOval(xpos - 5, ypos - 5, 10, 10);
-                
-                //// SHOW Outline of movement boundary
-                // xpos = originalCities[i].getx();
-                // ypos = originalCities[i].gety();
-                // g.setColor(Color.darkGray);
-                // g.drawLine(xpos + cityShiftAmount, ypos, xpos, ypos + cityShiftAmount);
-                // g.drawLine(xpos, ypos + cityShiftAmount, xpos - cityShiftAmount, ypos);
-                // g.drawLine(xpos - cityShiftAmount, ypos, xpos, ypos - cityShiftAmount);
-                // g.drawLine(xpos, ypos - cityShiftAmount, xpos + cityShiftAmount, ypos);
-            }
-
-            g.setColor(Color.gray);
-            for (int i = 0; i < cityCount; i++) {
-                int icity = chromosomes[0].getCity(i);
-                if (i != 0) {
-                    int last = chromosomes[0].getCity(i - 1);
-                    g.drawLine(
-                        cities[icity].getx(),
-                        cities[icity].gety(),
-                        cities[last].getx(),
-                        cities[last].gety());
-                }
-            }
-                        
-            int homeCity = chromosomes[0].getCity(0);
-            int lastCity = chromosomes[0].getCity(cityCount - 1);
-                        
-            //Drawing line returning home
-            g.drawLine(
-                    cities[homeCity].getx(),
-                    cities[homeCity].gety(),
-                    cities[lastCity].getx(),
-                    cities[lastCity].gety());
-        }
-        frame.getGraphics().drawImage(img, 0, 0, frame);
-    }
-
-    /*GIVEN*/private static City[] LoadCitiesFromFile(String filename, City[] citiesArray) {
-        ArrayList<City> cities = new ArrayList<City>();
-        try 
-        {
-            FileReader inputFile = new FileReader(filename);
-            BufferedReader bufferReader = new BufferedReader(inputFile);
-            String line;
-            while ((line = bufferReader.readLine()) != null) { 
-                String [] coordinates = line.split(", ");
-                cities.add(new City(Integer.parseInt(coordinates[0]), Integer.parseInt(coordinates[1])));
-            }
-
-            bufferReader.close();
-
-        } catch (Exception e) {
-            System.out.println("Error while reading file line by line:" + e.getMessage());                      
-        }
-        
-        citiesArray = new City[cities.size()];
-        return cities.toArray(citiesArray);
-    }
-
-    /*GIVEN*/private static City[] MoveCities(City[]cities) {
-    	City[] newPositions = new City[cities.length];
-        Random randomGenerator = new Random();
-
-        for(int i = 0; i < cities.length; i++) {
-        	int x = cities[i].getx();
-        	int y = cities[i].gety();
-        	
-            int position = randomGenerator.nextInt(5);
-            
-            if(position == 1) {
-            	y += cityShiftAmount;
-            } else if(position == 2) {
-            	x += cityShiftAmount;
-            } else if(position == 3) {
-            	y -= cityShiftAmount;
-            } else if(position == 4) {
-            	x -= cityShiftAmount;
-            }
-            
-            newPositions[i] = new City(x, y);
-        }
-        
-        return newPositions;
-    }
-
-    /*GIVEN*/public static void main(String[] args) {
-        DateFormat df = new SimpleDateFormat("MM-dd-yyyy HH:mm:ss");
-        Date today = Calendar.getInstance().getTime();
-        String currentTime  = df.format(today);
-
-        int runs;
-        boolean display = false;
-        String formatMessage = "Usage: java TSP 1 [gui] \n java TSP [Runs] [gui]";
-
-        if (args.length < 1) {
-            System.out.println("Please enter the arguments");
-            System.out.println(formatMessage);
-            display = false;
-        } else {
-
-            if (args.length > 1) {
-                display = true;
-            }
-
-            try {
-                cityCount = 50;
-                populationSize = 100;
-                runs = Integer.parseInt(args[0]);
-
-                if(display) {
-                    frame = new JFrame("Traveling Salesman");
-                    statsArea = new Panel();
-
-                    frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-                    frame.pack();
-                    frame.setSize(width + 300, height);
-                    frame.setResizable(false);
-                    frame.setLayout(new BorderLayout());
-
-                    statsText = new TextArea(35, 35);
-                    statsText.setEditable(false);
-
-                    statsArea.add(statsText);
-                    frame.add(statsArea, BorderLayout.EAST);
-
-                    frame.setVisible(true);
-                }
-
-
-                min = 0;
-                avg = 0;
-                max = 0;
-                sum = 0;
-
-                originalCities = cities = LoadCitiesFromFile("CityList.txt", cities);
-
-                writeLog("Run Stats for experiment at: " + currentTime);
-                for (int y = 1; y <= runs; y++) {
-                    genMin = 0;
-                    print(display,  "Run " + y + "\n");
-
-                // create the initial population of chromosomes
-                    chromosomes = new Chromosome[populationSize];
-                    for (int x = 0; x < populationSize; x++) {
-                        int[] t = new int[0];
-                        chromosomes[x] = new Chromosome(cities,t);
-                    }
-
-                    generation = 0;
-                    double thisCost = 0.0;
-
-                    while (generation < 100) {
-                        evolve();
-                        if(generation % 5 == 0 )
-                            cities = MoveCities(originalCities); //Move from original cities, so they only move by a maximum of one unit.
-                        generation++;
-
-                        Chromosome.sortChromosomes(chromosomes, populationSize);
-                        double cost = chromosomes[0].getCost();
-                        thisCost = cost;
-
-                        if (thisCost < genMin || genMin == 0) {
-                            genMin = thisCost;
-                        }
-
-                        NumberFormat nf = NumberFormat.getInstance();
-                        nf.setMinimumFractionDigits(2);
-                        nf.setMinimumFractionDigits(2);
-
-                        print(display, "Gen: " + generation + " Cost: " + (int) thisCost);
-
-                        if(display) {
-                            updateGUI();
-                        }
-                    }
-
-                    writeLog(genMin + "");
-
-                    if (genMin > max) {
-                        max = genMin;
-                    }
-
-                    if (genMin < min || min == 0) {
-                        min = genMin;
-                    }
-
-                    sum +=  genMin;
-
-                    print(display, "");
-                }
-
-                avg = sum / runs;
-                print(display, "Statistics after " + runs + " runs");
-                print(display, "Solution found after " + generation + " generations." + "\n");
-                print(display, "Statistics of minimum cost from each run \n");
-                print(display, "Lowest: " + min + "\nAverage: " + avg + "\nHighest: " + max + "\n");
-
-            } catch (NumberFormatException e) {
-                System.out.println("Please ensure you enter integers for cities and population size");
-                System.out.println(formatMessage);
-            }
-        }
-    }
-}
\ No newline at end of file
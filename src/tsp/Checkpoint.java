@@ -0,0 +1,361 @@
+package tsp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+
+/**
+ * A copy of everything a run needs to carry on after the JVM is restarted: the
+ * generation counter, the best tour so far, the current city positions and every
+ * population's tours and costs.
+ *
+ * A checkpoint is captured on the run's thread between generations, which only
+ * copies arrays, and written from another thread. Files are written to a temporary
+ * name, forced to disk and moved over the previous checkpoint, so a crash leaves
+ * either the old or the new checkpoint and never half of one. A CRC at the end of
+ * the file catches anything else.
+ *
+ * SplittableRandom does not expose its state, so a resumed run draws from a new
+ * generator seeded from the run's seed and the generation it resumed at. Resuming
+ * the same checkpoint twice gives the same run, but not the run that was interrupted.
+ */
+public class Checkpoint {
+
+    private static final int magic = 0x54535043; //"TSPC"
+    private static final int version = 1;
+
+    /**
+     * The experiment seed and the seed of the run, so the remaining runs keep their seeds.
+     */
+    final long experimentSeed;
+    final long runSeed;
+    final int runNumber;
+
+    final int generation;
+    final int improvedGeneration;
+    final double genMin;
+
+    /**
+     * Whether the run had stopped, in which case only genMin is of interest.
+     */
+    final boolean finished;
+
+    /**
+     * How long the run had evolved and how many tours it had costed, so budgets carry over.
+     */
+    final long elapsedNanos;
+    final long toursCosted;
+
+    /**
+     * Coordinates interleaved as x0, y0, x1, y1, ...
+     */
+    final int[] coordinates;
+    final int[] bestTour;
+    final int[] bestCoordinates;
+
+    /**
+     * The tours of each population, back to back, and their costs.
+     */
+    final int[][] genes;
+    final double[][] costs;
+
+    private Checkpoint(long experimentSeed, long runSeed, int runNumber, int generation, int improvedGeneration,
+                       double genMin, boolean finished, long elapsedNanos, long toursCosted, int[] coordinates,
+                       int[] bestTour, int[] bestCoordinates, int[][] genes, double[][] costs) {
+        this.experimentSeed = experimentSeed;
+        this.runSeed = runSeed;
+        this.runNumber = runNumber;
+        this.generation = generation;
+        this.improvedGeneration = improvedGeneration;
+        this.genMin = genMin;
+        this.finished = finished;
+        this.elapsedNanos = elapsedNanos;
+        this.toursCosted = toursCosted;
+        this.coordinates = coordinates;
+        this.bestTour = bestTour;
+        this.bestCoordinates = bestCoordinates;
+        this.genes = genes;
+        this.costs = costs;
+    }
+
+    /**
+     * Copy the state of a run between generations.
+     *
+     * @param run            The run, which must have finished at least one generation.
+     * @param experimentSeed The seed of the whole experiment.
+     * @param elapsedNanos   How long the run has evolved, including time before any resume.
+     * @param toursCosted    How many tours the run has costed, including before any resume.
+     * @return The copy, which the run no longer shares any array with.
+     */
+    static Checkpoint capture(RunContext run, long experimentSeed, long elapsedNanos, long toursCosted) {
+        int[][] genes;
+        double[][] costs;
+        if (run.islands != null) {
+            Chromosome[][] populations = run.islands.populations();
+            genes = new int[populations.length][];
+            costs = new double[populations.length][];
+            for (int p = 0; p < populations.length; p++) {
+                genes[p] = flatten(populations[p]);
+                costs[p] = costs(populations[p]);
+            }
+        } else if (run.pool != null) {
+            genes = new int[][] { new int[run.pool.size() * run.cities.length] };
+            costs = new double[][] { new double[run.pool.size()] };
+            run.pool.copyTo(genes[0], costs[0]);
+        } else {
+            genes = new int[][] { flatten(run.chromosomes) };
+            costs = new double[][] { costs(run.chromosomes) };
+        }
+        return new Checkpoint(experimentSeed, run.seed, run.runNumber, run.generation, run.improvedGeneration,
+                run.genMin, run.stopReason != null, elapsedNanos, toursCosted, coordinates(run.cities),
+                run.bestTour.clone(), coordinates(run.bestCities), genes, costs);
+    }
+
+    /**
+     * @return The seed of the generator a run resumed from this checkpoint draws from.
+     */
+    long resumeSeed() {
+        return new SplittableRandom(runSeed + generation * 0x9E3779B97F4A7C15L).nextLong();
+    }
+
+    /**
+     * @return The city positions at the time of the checkpoint.
+     */
+    City[] cities() {
+        return cities(coordinates);
+    }
+
+    /**
+     * @return The city positions the best tour was costed on.
+     */
+    City[] bestCities() {
+        return cities(bestCoordinates);
+    }
+
+    /**
+     * @return How many populations were saved, 1 unless the run evolved islands.
+     */
+    int populationCount() {
+        return genes.length;
+    }
+
+    /**
+     * Overwrite a population with the tours saved for it.
+     *
+     * @param population  Which saved population to restore.
+     * @param chromosomes The chromosomes to overwrite, as many as were saved.
+     */
+    void restore(int population, Chromosome[] chromosomes) {
+        int cityCount = coordinates.length / 2;
+        if (chromosomes.length * cityCount != genes[population].length) {
+            throw new IllegalStateException("Checkpoint holds " + genes[population].length / Math.max(1, cityCount)
+                    + " tours but the population has " + chromosomes.length);
+        }
+        for (int c = 0; c < chromosomes.length; c++) {
+            int[] tour = Arrays.copyOfRange(genes[population], c * cityCount, (c + 1) * cityCount);
+            chromosomes[c].setTour(tour, costs[population][c]);
+        }
+    }
+
+    /**
+     * Write the checkpoint to a file, replacing any previous checkpoint there all at once.
+     *
+     * @param file Where to write.
+     * @throws IOException If the file cannot be written.
+     */
+    void write(File file) throws IOException {
+        int cityCount = coordinates.length / 2;
+        //a tour fits in chars whenever the pool could have been compact
+        boolean compact = cityCount <= TourPool.compactLimit;
+        int geneBytes = compact ? 2 : 4;
+        long bytes = 4 + 4 + 8 + 8 + 4 + 4 + 4 + 8 + 1 + 8 + 8 + 4 + 1 + 4;
+        bytes += 2L * coordinates.length * 4 + (long) cityCount * geneBytes;
+        for (int p = 0; p < genes.length; p++) {
+            bytes += 4 + (long) genes[p].length * geneBytes + (long) costs[p].length * 8;
+        }
+        bytes += 8;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Checkpoint of " + bytes + " bytes is too large");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) bytes);
+        buffer.putInt(magic).putInt(version);
+        buffer.putLong(experimentSeed).putLong(runSeed).putInt(runNumber);
+        buffer.putInt(generation).putInt(improvedGeneration).putDouble(genMin).put((byte) (finished ? 1 : 0));
+        buffer.putLong(elapsedNanos).putLong(toursCosted);
+        buffer.putInt(cityCount).put((byte) (compact ? 1 : 0));
+        for (int c : coordinates) {
+            buffer.putInt(c);
+        }
+        for (int c : bestCoordinates) {
+            buffer.putInt(c);
+        }
+        putGenes(buffer, bestTour, compact);
+        buffer.putInt(genes.length);
+        for (int p = 0; p < genes.length; p++) {
+            buffer.putInt(costs[p].length);
+            for (double cost : costs[p]) {
+                buffer.putDouble(cost);
+            }
+            putGenes(buffer, genes[p], compact);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Read a checkpoint written by write.
+     *
+     * @param file The checkpoint file.
+     * @return The checkpoint.
+     * @throws IOException If the file cannot be read, or is not an intact checkpoint.
+     */
+    static Checkpoint read(File file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to be a checkpoint");
+            }
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException(file + " ended early");
+                }
+            }
+        }
+        buffer.flip();
+        if (buffer.remaining() < 16 || buffer.getInt() != magic) {
+            throw new IOException(file + " is not a checkpoint");
+        }
+        if (buffer.getInt() != version) {
+            throw new IOException(file + " was written by a different version");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.limit() - 8);
+        if (crc.getValue() != buffer.getLong(buffer.limit() - 8)) {
+            throw new IOException(file + " is corrupt");
+        }
+
+        try {
+            long experimentSeed = buffer.getLong();
+            long runSeed = buffer.getLong();
+            int runNumber = buffer.getInt();
+            int generation = buffer.getInt();
+            int improvedGeneration = buffer.getInt();
+            double genMin = buffer.getDouble();
+            boolean finished = buffer.get() != 0;
+            long elapsedNanos = buffer.getLong();
+            long toursCosted = buffer.getLong();
+            int cityCount = buffer.getInt();
+            boolean compact = buffer.get() != 0;
+            int[] coordinates = new int[2 * cityCount];
+            for (int i = 0; i < coordinates.length; i++) {
+                coordinates[i] = buffer.getInt();
+            }
+            int[] bestCoordinates = new int[2 * cityCount];
+            for (int i = 0; i < bestCoordinates.length; i++) {
+                bestCoordinates[i] = buffer.getInt();
+            }
+            int[] bestTour = getGenes(buffer, cityCount, compact);
+            int populations = buffer.getInt();
+            int[][] genes = new int[populations][];
+            double[][] costs = new double[populations][];
+            for (int p = 0; p < populations; p++) {
+                costs[p] = new double[buffer.getInt()];
+                for (int c = 0; c < costs[p].length; c++) {
+                    costs[p][c] = buffer.getDouble();
+                }
+                genes[p] = getGenes(buffer, costs[p].length * cityCount, compact);
+            }
+            return new Checkpoint(experimentSeed, runSeed, runNumber, generation, improvedGeneration, genMin,
+                    finished, elapsedNanos, toursCosted, coordinates, bestTour, bestCoordinates, genes, costs);
+        } catch (RuntimeException e) {
+            //a buffer underflow or a negative size, from a file that passed the CRC but is not ours
+            throw new IOException(file + " is not a valid checkpoint", e);
+        }
+    }
+
+    /**
+     * @param runNumber Which run of the experiment.
+     * @return The file that run's checkpoints are written to.
+     */
+    static File fileFor(int runNumber) {
+        return new File("checkpoint-" + runNumber + ".bin");
+    }
+
+    private static void putGenes(ByteBuffer buffer, int[] genes, boolean compact) {
+        for (int gene : genes) {
+            if (compact) {
+                buffer.putChar((char) gene);
+            } else {
+                buffer.putInt(gene);
+            }
+        }
+    }
+
+    private static int[] getGenes(ByteBuffer buffer, int count, boolean compact) {
+        int[] genes = new int[count];
+        for (int i = 0; i < count; i++) {
+            genes[i] = compact ? buffer.getChar() : buffer.getInt();
+        }
+        return genes;
+    }
+
+    private static int[] flatten(Chromosome[] chromosomes) {
+        int cityCount = chromosomes.length == 0 ? 0 : chromosomes[0].cityList.length;
+        int[] genes = new int[chromosomes.length * cityCount];
+        for (int c = 0; c < chromosomes.length; c++) {
+            System.arraycopy(chromosomes[c].cityList, 0, genes, c * cityCount, cityCount);
+        }
+        return genes;
+    }
+
+    private static double[] costs(Chromosome[] chromosomes) {
+        double[] costs = new double[chromosomes.length];
+        for (int c = 0; c < chromosomes.length; c++) {
+            costs[c] = chromosomes[c].getCost();
+        }
+        return costs;
+    }
+
+    private static int[] coordinates(City[] cities) {
+        int[] coordinates = new int[2 * cities.length];
+        for (int i = 0; i < cities.length; i++) {
+            coordinates[2 * i] = cities[i].getx();
+            coordinates[2 * i + 1] = cities[i].gety();
+        }
+        return coordinates;
+    }
+
+    private static City[] cities(int[] coordinates) {
+        City[] cities = new City[coordinates.length / 2];
+        for (int i = 0; i < cities.length; i++) {
+            cities[i] = new City(coordinates[2 * i], coordinates[2 * i + 1]);
+        }
+        return cities;
+    }
+}
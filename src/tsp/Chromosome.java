@@ -0,0 +1,473 @@
+package tsp;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+class Chromosome {
+
+    /**
+     * The list of cities, which are the genes of this chromosome.
+     */
+    protected int[] cityList;
+
+    /**
+     * The cost of following the cityList order of this chromosome.
+     */
+    protected double cost;
+
+    /**
+     * Shared by every chromosome of a population, which is only ever evolved by one thread at a time.
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Bounds of the last inversion proposed by proposeInversion.
+     */
+    private int proposedLower;
+    private int proposedUpper;
+
+    /**
+     * Where each city sits in cityList, built when first needed and dropped whenever cityList changes.
+     */
+    private int[] positions;
+
+    /**
+     * The Diversity hash of cityList, valid while hashed is set.
+     */
+    private long hash;
+    private boolean hashed;
+
+    /**
+     *Constructor method for 
+     * @param cities The order that this chromosome would visit the cities.
+     * @param parent The best performing chromosome last time
+     */
+    Chromosome(City[] cities, int[] parent) {
+        this(new DistanceMatrix(cities, DistanceMatrix.Mode.ON_THE_FLY), parent);
+    }
+
+    /**
+     * Constructor method that reads distances from a precomputed matrix.
+     * @param distances The distances between the cities for the current layout.
+     * @param parent The best performing chromosome last time, or an empty array for a new nearest neighbour tour
+     */
+    Chromosome(DistanceMatrix distances, int[] parent) {
+        this(distances, parent, new SplittableRandom());
+    }
+
+    /**
+     * Constructor method whose random choices all come from the given generator, so a seeded run can be replayed.
+     * @param distances The distances between the cities for the current layout.
+     * @param parent The best performing chromosome last time, or an empty array for a new nearest neighbour tour
+     * @param random The generator of the population this chromosome belongs to.
+     */
+    Chromosome(DistanceMatrix distances, int[] parent, SplittableRandom random) {
+        this.random = random;
+        int cityCount = distances.size();
+        cityList = new int[cityCount];
+
+        //called from evolve
+        if(parent.length>0){
+            System.arraycopy(parent, 0, cityList, 0, cityCount);
+            calculateCost(distances);
+        }
+
+        //called from main
+        else {
+            //cities are visited based on the order of an integer representation [o,n] of each of the n cities.
+            //start from a random city, then always travel to the nearest city not yet visited,
+            //using the spatial index shared by every chromosome on this layout
+            SpatialGrid.Search unvisited = distances.spatialGrid().search();
+            int currentCity = random.nextInt(cityCount);
+            for(int i = 0; i<cityCount; i++){
+                cityList[i] = currentCity;
+                unvisited.remove(currentCity);
+                if(i != cityCount-1){
+                    currentCity = unvisited.nearest(currentCity);
+                }
+            }
+            calculateCost(distances);
+        }
+    }
+
+    /**
+     * Calculate the cost of the specified list of cities.
+     *
+     * @param cities A list of cities.
+     */
+    /*GIVEN*/void calculateCost(City[] cities) {
+        cost = 0;
+        for (int i = 0; i < cityList.length - 1; i++) {
+            double dist = cities[cityList[i]].proximity(cities[cityList[i + 1]]);
+            cost += dist;
+        }
+
+        cost += cities[cityList[0]].proximity(cities[cityList[cityList.length - 1]]); //Adding return home
+    }
+
+    /**
+     * Calculate the cost of this chromosome from a precomputed distance matrix.
+     *
+     * @param distances The distances between the cities for the current layout.
+     */
+    /*WRITTEN*/void calculateCost(DistanceMatrix distances) {
+        cost = distances.tourCost(cityList);
+    }
+
+    /**
+     * Get the cost for this chromosome. This is the amount of distance that
+     * must be traveled.
+     */
+    /*GIVEN*/double getCost() {
+        return cost;
+    }
+
+    /**
+     * @param i The city you want.
+     * @return The ith city.
+     */
+    /*GIVEN*/int getCity(int i) {
+        return cityList[i];
+    }
+
+    /**
+     * Set the order of cities that this chromosome would visit.
+     *
+     * @param list A list of cities.
+     */
+    /*GIVEN*/void setCities(int[] list) {
+        for (int i = 0; i < cityList.length; i++) {
+            cityList[i] = list[i];
+        }
+        tourChanged();
+    }
+
+    /**
+     * Set the index'th city in the city list.
+     *
+     * @param index The city index to change
+     * @param value The city number to place into the index.
+     */
+    /*GIVEN*/void setCity(int index, int value) {
+        cityList[index] = value;
+        tourChanged();
+    }
+
+    /**
+     *Generate upper and lower bound of sub array
+     *@return bound[0] is the lower bound and bound[1] the upper bound
+     */
+    /*WRITTEN*/private int[] generate_bounds(){
+        int[] bounds = new int[2];
+        pick_bounds();
+        bounds[0] = proposedLower;
+        bounds[1] = proposedUpper;
+        return bounds;
+    }
+
+    /**
+     * Pick random upper and lower bounds of a sub array without allocating,
+     * storing them in proposedLower and proposedUpper
+     */
+    /*WRITTEN*/private void pick_bounds(){
+        int lower_bound = random.nextInt(cityList.length);
+        int upper_bound = random.nextInt(cityList.length);
+
+        //lower = upper
+        if (lower_bound == upper_bound){
+            while(lower_bound == upper_bound ){
+                upper_bound = random.nextInt(cityList.length);
+            }
+        }
+        //lower bound < upper bound
+        if (lower_bound>upper_bound){
+            //upper bound has the lower bound value
+            int temp = upper_bound;
+            //upper bound has the upper bound value
+            upper_bound = lower_bound;
+            //lower bound has lower bound value
+            lower_bound = temp;
+        }
+
+        proposedLower = lower_bound;
+        proposedUpper = upper_bound;
+    }
+
+    /**
+     * Reverses the order of values stored in an int array
+     * @param array the array in need of reversing
+     * @return the array with its indices reversed
+     */
+    /*WRITTEN*/private int[] reverse_array(int[] array){
+        for(int i = 0; i<=array.length/2; i++){
+            int temp = array[i];
+            array[i] = array[array.length-i-1];
+            array[array.length-i-1] = temp;
+        }
+        return array;
+    }
+
+    /**
+     * Chromosome undergoes a mutation
+     * @return the mutated chromosome
+     */
+    /*WRITTEN*/public int[] inversion(){
+        //EDGE CASE: there is only one city or there are no cities
+        if(cityList.length <= 1){
+            return cityList;
+        }
+
+        int[] cityListMutated = new int[cityList.length];
+        int[] bounds = generate_bounds();
+
+        //create an array which is a mutated version of a subarray of cityList
+        int len_subarray = (bounds[1]-bounds[0])+1;
+        int[] subarray = new int[len_subarray];
+        System.arraycopy(cityList,bounds[0],subarray,0,len_subarray);
+        int[] mutated_subarray = reverse_array(subarray);
+
+        //copy the values from cityList into cityListMutated up until the lower bound
+        int limit = bounds[0]-1;
+        //EDGE CASE: the lower bound is the first index
+        if(bounds[0]>=0){
+            limit = bounds[0];
+        }
+        System.arraycopy(cityList,0,cityListMutated,0,limit);
+
+        //copy all the values from mutated_subarray into cityListMutated
+        System.arraycopy(mutated_subarray, 0, cityListMutated, bounds[0], mutated_subarray.length);
+
+        //copy all the values from cityList (occurring after the upper bound) into cityListMutated
+        limit=bounds[1]+1;
+        System.arraycopy(cityList,limit,cityListMutated,limit, cityListMutated.length-limit);
+
+        return cityListMutated;
+    }
+
+    /**
+     * Picks a random segment to invert and returns how the cost would change,
+     * without touching cityList. Only the two edges at the ends of the segment change.
+     * @param distances The distances between the cities for the current layout.
+     * @return the change in cost if the inversion were applied
+     */
+    /*WRITTEN*/public int proposeInversion(DistanceMatrix distances){
+        //EDGE CASE: a tour of three or fewer cities has the same cost in any order
+        if(cityList.length <= 3){
+            proposedLower = 0;
+            proposedUpper = 0;
+            return 0;
+        }
+        pick_bounds();
+        return inversionDelta(cityList, proposedLower, proposedUpper, distances);
+    }
+
+    /**
+     * Picks a segment to invert so that a random city becomes adjacent to one of its
+     * near neighbours, and returns how the cost would change without touching cityList.
+     * Falls back to a random segment when the chosen neighbour is already adjacent.
+     * @param distances The distances between the cities for the current layout.
+     * @param neighbours The candidate neighbours of every city for the current layout.
+     * @return the change in cost if the inversion were applied
+     */
+    /*WRITTEN*/public int proposeNeighbourInversion(DistanceMatrix distances, NeighbourLists neighbours){
+        int n = cityList.length;
+        if(n <= 3 || neighbours.size() == 0){
+            return proposeInversion(distances);
+        }
+        int from = random.nextInt(n);
+        int to = positionOf(neighbours.get(cityList[from], random.nextInt(neighbours.size())));
+
+        //reversing the segment after the earlier city up to the later one joins the two cities
+        if(from < to - 1){
+            proposedLower = from + 1;
+            proposedUpper = to;
+        }
+        else if(to < from - 1){
+            proposedLower = to + 1;
+            proposedUpper = from;
+        }
+        else{
+            return proposeInversion(distances);
+        }
+        return inversionDelta(cityList, proposedLower, proposedUpper, distances);
+    }
+
+    /**
+     * @param city The city to look for.
+     * @return Where the city sits in cityList.
+     */
+    /*WRITTEN*/int positionOf(int city){
+        return positions()[city];
+    }
+
+    /**
+     * The city to position array, which callers that move cities around must keep up to date.
+     * @return where each city sits in cityList
+     */
+    /*WRITTEN*/int[] positions(){
+        if(positions == null){
+            positions = new int[cityList.length];
+            for(int i = 0; i < cityList.length; i++){
+                positions[cityList[i]] = i;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Correct the cost for cities that have moved, without walking the whole tour
+     * when the position array is already known.
+     * @param moves the cities that moved
+     */
+    /*WRITTEN*/void adjustCost(CityMoves moves){
+        cost = moves.newCost(cityList, 0, cityList.length, positions, cost);
+    }
+
+    /**
+     * @return the generator shared by this chromosome's population
+     */
+    /*WRITTEN*/SplittableRandom random(){
+        return random;
+    }
+
+    /**
+     * Overwrite the tour in place, so an evicted chromosome can be reused for a new child.
+     * @param tour the new order of the cities, copied
+     * @param cost the cost of the new tour
+     */
+    /*WRITTEN*/void setTour(int[] tour, double cost){
+        System.arraycopy(tour, 0, cityList, 0, cityList.length);
+        this.cost = cost;
+        tourChanged();
+    }
+
+    /**
+     * Must be called whenever cityList is modified directly, so derived data is rebuilt.
+     */
+    /*WRITTEN*/void tourChanged(){
+        positions = null;
+        hashed = false;
+    }
+
+    /**
+     * Must be called when cityList was modified with its position array kept up to date.
+     */
+    /*WRITTEN*/void edgesChanged(){
+        hashed = false;
+    }
+
+    /**
+     * @return the Diversity hash of this tour, computed when first needed after a change
+     */
+    /*WRITTEN*/long hash(){
+        if(!hashed){
+            hash = Diversity.tourHash(cityList);
+            hashed = true;
+        }
+        return hash;
+    }
+
+    /**
+     * @return the hash the child described by the last call to proposeInversion would have
+     */
+    /*WRITTEN*/long proposedHash(){
+        return hash() ^ Diversity.inversionHashChange(cityList, proposedLower, proposedUpper);
+    }
+
+    /**
+     * Applies the inversion described by the last call to proposeInversion to this chromosome itself.
+     * @param delta the change in cost that proposeInversion returned
+     */
+    /*WRITTEN*/void applyInversion(int delta){
+        boolean keepHash = hashed;
+        long childHash = keepHash ? proposedHash() : 0;
+        reverse(cityList, proposedLower, proposedUpper);
+        cost += delta;
+        tourChanged();
+        hash = childHash;
+        hashed = keepHash;
+    }
+
+    /**
+     * Creates the child described by the last call to proposeInversion.
+     * @param childCost the cost of the child, i.e. this cost plus the proposed delta
+     * @return the mutated chromosome
+     */
+    /*WRITTEN*/public Chromosome acceptInversion(double childCost){
+        Chromosome child = new Chromosome(cityList, childCost, random);
+        //the child's hash follows from this one in four XORs, if this one is known
+        if(hashed){
+            child.hash = proposedHash();
+            child.hashed = true;
+        }
+        reverse(child.cityList, proposedLower, proposedUpper);
+        return child;
+    }
+
+    /**
+     * Copy constructor used when the cost of the copy is already known.
+     */
+    /*WRITTEN*/private Chromosome(int[] parent, double cost, SplittableRandom random) {
+        cityList = parent.clone();
+        this.cost = cost;
+        this.random = random;
+    }
+
+    /**
+     * The change in cost of a closed tour when the segment [lower, upper] is reversed.
+     * @return the cost after the reversal minus the cost before it
+     */
+    /*WRITTEN*/static int inversionDelta(int[] tour, int lower, int upper, DistanceMatrix distances){
+        return inversionDelta(tour, 0, tour.length, lower, upper, distances);
+    }
+
+    /**
+     * The change in cost of a closed tour stored at genes[offset..offset+n) when
+     * the segment [lower, upper] (relative to offset) is reversed.
+     * @return the cost after the reversal minus the cost before it
+     */
+    /*WRITTEN*/static int inversionDelta(int[] genes, int offset, int n, int lower, int upper, DistanceMatrix distances){
+        //reversing the whole tour, or everything but one city, leaves the same set of edges
+        if(upper - lower >= n - 2){
+            return 0;
+        }
+        int before = genes[offset + (lower == 0 ? n - 1 : lower - 1)];
+        int after = genes[offset + (upper == n - 1 ? 0 : upper + 1)];
+        int first = genes[offset + lower];
+        int last = genes[offset + upper];
+        return distances.distance(before, last) + distances.distance(first, after)
+                - distances.distance(before, first) - distances.distance(last, after);
+    }
+
+    /**
+     * Reverses tour[lower..upper] in place.
+     */
+    /*WRITTEN*/static void reverse(int[] tour, int lower, int upper){
+        while(lower < upper){
+            int temp = tour[lower];
+            tour[lower] = tour[upper];
+            tour[upper] = temp;
+            lower++;
+            upper--;
+        }
+    }
+
+    /**
+     * Sort the chromosomes by their cost.
+     *
+     * @param chromosomes An array of chromosomes to sort.
+     * @param num         How much of the chromosome list to sort.
+     */
+    /*GIVEN*/public static void sortChromosomes(Chromosome chromosomes[], int num) {
+        //binary insertion sort: stable like the original bubble sort, and linear when already sorted
+        for (int i = 1; i < num; i++) {
+            Chromosome ctemp = chromosomes[i];
+            if (chromosomes[i - 1].getCost() <= ctemp.getCost()) {
+                continue;
+            }
+            int rank = RankedPopulation.upperBound(chromosomes, ctemp.getCost(), i);
+            System.arraycopy(chromosomes, rank, chromosomes, rank + 1, i - rank);
+            chromosomes[rank] = ctemp;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package tsp;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads city coordinates straight from the bytes of a file into primitive arrays.
+ *
+ * Two formats are understood: the original one city per line "x, y" format of
+ * CityList.txt, and TSPLIB .tsp files with an EUC_2D NODE_COORD_SECTION.
+ * TSPLIB coordinates may be real numbers, they are rounded to the nearest
+ * integer since cities live on an integer grid.
+ */
+public class CityLoader {
+
+    /**
+     * The file contents, memory mapped.
+     */
+    private final ByteBuffer data;
+
+    /**
+     * The next byte to read, and the line it is on counting from 1.
+     */
+    private int position;
+    private int line = 1;
+
+    private final String filename;
+
+    /**
+     * Whether the file has a TSPLIB header, and the DIMENSION it declares, 0 if none.
+     */
+    private boolean tsplib;
+    private int dimension;
+
+    /**
+     * The coordinates read so far.
+     */
+    private int[] xs;
+    private int[] ys;
+    private int count;
+
+    private CityLoader(String filename, ByteBuffer data) {
+        this.filename = filename;
+        this.data = data;
+    }
+
+    /**
+     * Read the cities in a file.
+     *
+     * @param filename The file to read, in either the "x, y" or TSPLIB format.
+     * @return The loaded coordinates.
+     * @throws IOException If the file cannot be read or is not in a recognised format.
+     */
+    public static CityLoader load(String filename) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(filename, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(filename + " is too large to load");
+            }
+            CityLoader loader = new CityLoader(filename, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            loader.parse();
+            return loader;
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * @return How many cities were loaded.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return The x position of every city, indexed by city number.
+     */
+    public int[] getXs() {
+        return xs;
+    }
+
+    /**
+     * @return The y position of every city, indexed by city number.
+     */
+    public int[] getYs() {
+        return ys;
+    }
+
+    /**
+     * @return A City for every loaded coordinate pair.
+     */
+    public City[] toCities() {
+        City[] cities = new City[count];
+        for (int i = 0; i < count; i++) {
+            cities[i] = new City(xs[i], ys[i]);
+        }
+        return cities;
+    }
+
+    /**
+     * One city per line. A line must hold exactly the expected numbers, so a missing or extra
+     * coordinate is reported where it is instead of shifting every later city.
+     */
+    private void parse() throws IOException {
+        skipBlankLines();
+        if (position < data.limit() && isLetter(data.get(position))) {
+            parseTsplibHeader();
+        } else {
+            //roughly "123, 456\n" per city
+            allocate(Math.max(16, data.limit() / 8));
+        }
+        //a TSPLIB line starts with the node number, cities are numbered by the order they appear in
+        int expected = tsplib ? 3 : 2;
+        double[] numbers = new double[expected];
+
+        while (true) {
+            skipBlankLines();
+            if (position >= data.limit() || (tsplib && isLetter(data.get(position)))) {
+                //end of file, or the TSPLIB EOF marker
+                break;
+            }
+            int found = 0;
+            while (true) {
+                skipSpaces();
+                if (position >= data.limit() || data.get(position) == '\n') {
+                    break;
+                }
+                if (found == expected) {
+                    throw new IOException(filename + ": line " + line + " has more than " + expected + " numbers");
+                }
+                numbers[found++] = readNumber();
+            }
+            if (found < expected) {
+                throw new IOException(filename + ": line " + line + " needs " + expected + " numbers but has " + found);
+            }
+            add((int) Math.round(numbers[expected - 2]), (int) Math.round(numbers[expected - 1]));
+        }
+
+        if (count == 0) {
+            throw new IOException(filename + " contains no cities");
+        }
+        if (dimension > 0 && count != dimension) {
+            throw new IOException(filename + " declares DIMENSION " + dimension + " but lists " + count + " cities");
+        }
+        xs = Arrays.copyOf(xs, count);
+        ys = Arrays.copyOf(ys, count);
+    }
+
+    /**
+     * Read "KEY : value" lines up to NODE_COORD_SECTION. Header lines are short so
+     * they are read as Strings, unlike the coordinates.
+     */
+    private void parseTsplibHeader() throws IOException {
+        tsplib = true;
+        while (true) {
+            skipBlankLines();
+            if (position >= data.limit()) {
+                throw new IOException(filename + " has no NODE_COORD_SECTION");
+            }
+            String text = readLine().trim();
+            if (text.startsWith("NODE_COORD_SECTION")) {
+                break;
+            }
+            int colon = text.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String key = text.substring(0, colon).trim();
+            String value = text.substring(colon + 1).trim();
+            if (key.equals("DIMENSION")) {
+                try {
+                    dimension = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw new IOException(filename + ": line " + line + " has a malformed DIMENSION " + value);
+                }
+            } else if (key.equals("EDGE_WEIGHT_TYPE") && !value.equals("EUC_2D")) {
+                throw new IOException(filename + ": unsupported EDGE_WEIGHT_TYPE " + value + ", only EUC_2D is supported");
+            }
+        }
+        allocate(Math.max(16, dimension));
+    }
+
+    private void allocate(int capacity) {
+        xs = new int[capacity];
+        ys = new int[capacity];
+    }
+
+    private void add(int x, int y) {
+        if (count == xs.length) {
+            xs = Arrays.copyOf(xs, count * 2);
+            ys = Arrays.copyOf(ys, count * 2);
+        }
+        xs[count] = x;
+        ys[count] = y;
+        count++;
+    }
+
+    /**
+     * Skip whitespace, including line ends, counting the lines passed.
+     */
+    private void skipBlankLines() {
+        int limit = data.limit();
+        while (position < limit) {
+            byte b = data.get(position);
+            if (b == '\n') {
+                line++;
+            } else if (b != ' ' && b != '\t' && b != '\r') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Skip whitespace and the commas between coordinates, stopping at the end of the line.
+     */
+    private void skipSpaces() {
+        int limit = data.limit();
+        while (position < limit) {
+            byte b = data.get(position);
+            if (b != ' ' && b != ',' && b != '\t' && b != '\r') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private String readLine() {
+        int start = position;
+        while (position < data.limit() && data.get(position) != '\n') {
+            position++;
+        }
+        byte[] bytes = new byte[position - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Parse a decimal number, with optional sign, fraction and exponent, directly from the bytes.
+     */
+    private double readNumber() throws IOException {
+        int limit = data.limit();
+        int start = position;
+        boolean negative = false;
+        if (data.get(position) == '-' || data.get(position) == '+') {
+            negative = data.get(position) == '-';
+            position++;
+        }
+
+        long whole = 0;
+        int digits = 0;
+        while (position < limit && isDigit(data.get(position))) {
+            whole = whole * 10 + (data.get(position++) - '0');
+            digits++;
+        }
+        double value = whole;
+
+        if (position < limit && data.get(position) == '.') {
+            position++;
+            double scale = 0.1;
+            while (position < limit && isDigit(data.get(position))) {
+                value += (data.get(position++) - '0') * scale;
+                scale /= 10;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            throw new IOException(filename + ": expected a number on line " + line + " at byte " + start);
+        }
+
+        if (position < limit && (data.get(position) == 'e' || data.get(position) == 'E')) {
+            position++;
+            boolean negativeExponent = false;
+            if (position < limit && (data.get(position) == '-' || data.get(position) == '+')) {
+                negativeExponent = data.get(position) == '-';
+                position++;
+            }
+            int exponent = 0;
+            while (position < limit && isDigit(data.get(position))) {
+                exponent = exponent * 10 + (data.get(position++) - '0');
+            }
+            value *= Math.pow(10, negativeExponent ? -exponent : exponent);
+        }
+
+        if (position < limit && !isSeparator(data.get(position))) {
+            throw new IOException(filename + ": malformed number on line " + line + " at byte " + start);
+        }
+        return negative ? -value : value;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isLetter(byte b) {
+        return (b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z');
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == ',' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
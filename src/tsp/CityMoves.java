@@ -0,0 +1,205 @@
+package tsp;
+
+/**
+ * The cities that changed position between the layout a distance matrix was built
+ * with and a new layout, used to carry a population across the change without
+ * re-evaluating every tour.
+ *
+ * Only edges with a moved end change length, so each tour's cost is corrected by
+ * the length change of those edges alone, and only the matrix rows of moved cities
+ * are recomputed. That is only cheaper while few cities move: once more than a
+ * quarter of them have moved, tours are simply re-costed through the updated matrix.
+ * TSP.MoveCities shifts about four cities in five on every move, so its moves always
+ * take that dense path, and the per-edge correction only applies to sparse moves.
+ *
+ * Call commit once, then adjust every tour. Old lengths are computed from the old
+ * coordinates and new ones read from the updated matrix.
+ */
+public class CityMoves {
+
+    private final DistanceMatrix distances;
+    private final City[] cities;
+
+    /**
+     * The coordinates the matrix held before commit.
+     */
+    private final int[] oldXs;
+    private final int[] oldYs;
+
+    /**
+     * Whether each city moved, and the moved cities as a list.
+     */
+    private final boolean[] moved;
+    private final int[] movedCities;
+    private final int count;
+
+    /**
+     * How many tours newCost has re-costed in full because the move is dense.
+     */
+    private long recosted;
+
+    /**
+     * Constructor, compares the new layout against the one the matrix holds.
+     *
+     * @param distances The distances for the current layout.
+     * @param cities    The new city positions, must be the same length as the current layout.
+     */
+    public CityMoves(DistanceMatrix distances, City[] cities) {
+        if (cities.length != distances.size()) {
+            throw new IllegalArgumentException("Expected " + distances.size() + " cities but got " + cities.length);
+        }
+        this.distances = distances;
+        this.cities = cities;
+        moved = new boolean[cities.length];
+        oldXs = new int[cities.length];
+        oldYs = new int[cities.length];
+        int[] list = new int[cities.length];
+        int found = 0;
+        for (int i = 0; i < cities.length; i++) {
+            oldXs[i] = distances.getx(i);
+            oldYs[i] = distances.gety(i);
+            if (cities[i].getx() != oldXs[i] || cities[i].gety() != oldYs[i]) {
+                moved[i] = true;
+                list[found++] = i;
+            }
+        }
+        movedCities = list;
+        count = found;
+    }
+
+    /**
+     * @return How many cities moved.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return Whether so many cities moved that tours are cheaper to re-cost than to correct.
+     */
+    public boolean isDense() {
+        return count * 4 > moved.length;
+    }
+
+    /**
+     * @return How many tours have been re-costed in full rather than corrected, which is every
+     * tour adjusted so far when the move is dense and none otherwise.
+     */
+    public long recostedTours() {
+        return recosted;
+    }
+
+    /**
+     * Move the matrix to the new layout, recomputing only the rows of moved cities
+     * unless the move is dense. Call this before adjusting any tour.
+     */
+    public void commit() {
+        if (isDense()) {
+            distances.rebuild(cities);
+        } else {
+            distances.update(cities, movedCities, count);
+        }
+    }
+
+    /**
+     * The cost of a closed tour under the new layout, given its cost under the old one.
+     *
+     * @param genes    The buffer holding the tour.
+     * @param offset   Where the tour starts in genes.
+     * @param length   The number of cities in the tour.
+     * @param position Where each city sits in the tour relative to offset, or null if not known.
+     * @param oldCost  The cost of the tour under the old layout.
+     * @return The cost of the tour under the new layout.
+     */
+    public double newCost(int[] genes, int offset, int length, int[] position, double oldCost) {
+        if (length == 0) {
+            return 0;
+        }
+        if (isDense()) {
+            recosted++;
+            return distances.tourCost(genes, offset, length);
+        }
+        return oldCost + costChange(genes, offset, length, position);
+    }
+
+    /**
+     * The cost of a closed tour stored as chars, as in a compact TourPool, under the new layout.
+     *
+     * @param genes   The buffer holding the tour.
+     * @param offset  Where the tour starts in genes.
+     * @param length  The number of cities in the tour.
+     * @param oldCost The cost of the tour under the old layout.
+     * @return The cost of the tour under the new layout.
+     */
+    public double newCost(char[] genes, int offset, int length, double oldCost) {
+        if (length == 0) {
+            return 0;
+        }
+        if (isDense()) {
+            return distances.tourCost(genes, offset, length);
+        }
+        int end = offset + length - 1;
+        double change = 0;
+        for (int i = offset; i < end; i++) {
+            if (moved[genes[i]] || moved[genes[i + 1]]) {
+                change += edgeChange(genes[i], genes[i + 1]);
+            }
+        }
+        if (moved[genes[offset]] || moved[genes[end]]) {
+            change += edgeChange(genes[end], genes[offset]); //Adding return home
+        }
+        return oldCost + change;
+    }
+
+    /**
+     * How much a closed tour's cost changed, from the edges with a moved end.
+     */
+    private double costChange(int[] genes, int offset, int length, int[] position) {
+        double change = 0;
+        if (position != null) {
+            //each moved city owns the edge to its successor, and the edge from its predecessor
+            //unless the predecessor moved too and so already owns that edge
+            for (int m = 0; m < count; m++) {
+                int city = movedCities[m];
+                int at = position[city];
+                int next = genes[offset + (at == length - 1 ? 0 : at + 1)];
+                int previous = genes[offset + (at == 0 ? length - 1 : at - 1)];
+                change += edgeChange(city, next);
+                if (!moved[previous]) {
+                    change += edgeChange(previous, city);
+                }
+            }
+            return change;
+        }
+        int end = offset + length - 1;
+        for (int i = offset; i < end; i++) {
+            if (moved[genes[i]] || moved[genes[i + 1]]) {
+                change += edgeChange(genes[i], genes[i + 1]);
+            }
+        }
+        if (moved[genes[offset]] || moved[genes[end]]) {
+            change += edgeChange(genes[end], genes[offset]); //Adding return home
+        }
+        return change;
+    }
+
+    /**
+     * Correct the cost of every chromosome for the new layout, after commit.
+     *
+     * @param chromosomes The chromosomes, whose costs must be current for the old layout.
+     */
+    public void adjust(Chromosome[] chromosomes) {
+        for (Chromosome chromosome : chromosomes) {
+            chromosome.adjustCost(this);
+        }
+    }
+
+    /**
+     * The stored distance minus the same formula as City.proximity on the old positions.
+     */
+    private int edgeChange(int a, int b) {
+        int xdiff = oldXs[a] - oldXs[b];
+        int ydiff = oldYs[a] - oldYs[b];
+        return distances.distance(a, b) - (int) Math.sqrt(xdiff * xdiff + ydiff * ydiff);
+    }
+}
@@ -0,0 +1,425 @@
+package tsp;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Recombines two parent tours into a child tour.
+ *
+ * Every buffer an operator needs is allocated once per thread and reused, so a
+ * crossover costs no more allocation than the child it writes into the caller's
+ * array. Visited sets are kept as stamps, which are cleared by bumping the stamp
+ * instead of filling an array.
+ */
+public class Crossover {
+
+    /**
+     * The recombination operators.
+     */
+    public enum Operator {
+        /** Order crossover: a segment of the first parent, the rest in the order of the second. */
+        OX,
+        /** Partially mapped crossover: a segment of the first parent, the rest placed as in the second. */
+        PMX,
+        /** Edge assembly crossover: the first parent with one AB-cycle of edges swapped for the second's. */
+        EAX
+    }
+
+    private static final ThreadLocal<Crossover> perThread = new ThreadLocal<Crossover>();
+
+    /**
+     * The number of cities in every tour.
+     */
+    private final int n;
+
+    /**
+     * Scratch space for the child, handed out by child().
+     */
+    private final int[] child;
+
+    /**
+     * Cities marked in the current call have stamp equal to currentStamp.
+     */
+    private final int[] stamp;
+    private int currentStamp;
+
+    /**
+     * Where each city sits in the first parent.
+     */
+    private final int[] position;
+
+    /**
+     * The two tour neighbours of city c are at [2c] and [2c + 1], for each parent and for the child.
+     */
+    private final int[] linkA;
+    private final int[] linkB;
+    private final int[] link;
+
+    /**
+     * Edge slots of each parent already used by the AB-cycle, marked with currentStamp.
+     */
+    private final int[] usedA;
+    private final int[] usedB;
+
+    /**
+     * The cities along the AB-cycle, alternating edges of the first and the second parent.
+     */
+    private final int[] walk;
+
+    /**
+     * Which subtour each city is in, and the size and one city of every subtour.
+     */
+    private final int[] component;
+    private final int[] componentSize;
+    private final int[] componentCity;
+
+    /**
+     * Constructor.
+     *
+     * @param n The number of cities in every tour.
+     */
+    public Crossover(int n) {
+        this.n = n;
+        child = new int[n];
+        stamp = new int[n];
+        position = new int[n];
+        linkA = new int[2 * n];
+        linkB = new int[2 * n];
+        link = new int[2 * n];
+        usedA = new int[2 * n];
+        usedB = new int[2 * n];
+        walk = new int[2 * n + 1];
+        component = new int[n];
+        componentSize = new int[n];
+        componentCity = new int[n];
+    }
+
+    /**
+     * @param n The number of cities in every tour.
+     * @return This thread's crossover for tours of n cities.
+     */
+    public static Crossover forThread(int n) {
+        Crossover crossover = perThread.get();
+        if (crossover == null || crossover.n != n) {
+            crossover = new Crossover(n);
+            perThread.set(crossover);
+        }
+        return crossover;
+    }
+
+    /**
+     * @return A buffer of n cities that cross may write its child into.
+     */
+    public int[] child() {
+        return child;
+    }
+
+    /**
+     * Recombine two parents.
+     *
+     * @param operator    Which crossover to apply.
+     * @param first       The first parent, which EAX starts from.
+     * @param firstCost   The cost of the first parent.
+     * @param second      The second parent.
+     * @param child       Receives the child, must not be either parent.
+     * @param distances   The distances for the current layout.
+     * @param neighbours  Candidate neighbours for EAX to reconnect subtours through, or null to search every city.
+     * @param random      Where the cut points and the AB-cycle are drawn from.
+     * @return The cost of the child, or -1 if the parents have the same edges and EAX made no child.
+     */
+    public double cross(Operator operator, int[] first, double firstCost, int[] second, int[] child,
+                        DistanceMatrix distances, NeighbourLists neighbours, SplittableRandom random) {
+        if (operator == Operator.EAX) {
+            return edgeAssembly(first, firstCost, second, child, distances, neighbours, random);
+        }
+        int lower = random.nextInt(n);
+        int upper = random.nextInt(n);
+        if (lower > upper) {
+            int temp = lower;
+            lower = upper;
+            upper = temp;
+        }
+        if (operator == Operator.OX) {
+            orderCrossover(first, second, child, lower, upper);
+        } else {
+            partiallyMapped(first, second, child, lower, upper);
+        }
+        return distances.tourCost(child);
+    }
+
+    /**
+     * Copy first[lower..upper], then fill the rest from just after the segment onwards
+     * with the missing cities in the order the second parent visits them.
+     */
+    private void orderCrossover(int[] first, int[] second, int[] child, int lower, int upper) {
+        nextStamp();
+        for (int i = lower; i <= upper; i++) {
+            child[i] = first[i];
+            stamp[first[i]] = currentStamp;
+        }
+        int write = upper + 1 == n ? 0 : upper + 1;
+        for (int k = 1; k <= n; k++) {
+            int city = second[(upper + k) % n];
+            if (stamp[city] != currentStamp) {
+                child[write] = city;
+                write = write + 1 == n ? 0 : write + 1;
+            }
+        }
+    }
+
+    /**
+     * Copy first[lower..upper], then take every other position from the second parent,
+     * following the segment's mapping while the city there is already in the child.
+     */
+    private void partiallyMapped(int[] first, int[] second, int[] child, int lower, int upper) {
+        for (int i = 0; i < n; i++) {
+            position[first[i]] = i;
+        }
+        nextStamp();
+        for (int i = lower; i <= upper; i++) {
+            child[i] = first[i];
+            stamp[first[i]] = currentStamp;
+        }
+        for (int k = 0; k < n; k++) {
+            if (k >= lower && k <= upper) {
+                continue;
+            }
+            int city = second[k];
+            while (stamp[city] == currentStamp) {
+                city = second[position[city]];
+            }
+            child[k] = city;
+        }
+    }
+
+    /**
+     * EAX with a single AB-cycle: starting from a random city, alternately follow an edge
+     * only the first parent has and one only the second has until the walk closes. The
+     * child is the first parent with the walk's first-parent edges replaced by its
+     * second-parent edges, which leaves every city with two edges but may split the
+     * tour into subtours. Each subtour, smallest first, is then joined to another by
+     * the cheapest exchange of one edge from each, found through candidate neighbours.
+     */
+    private double edgeAssembly(int[] first, double firstCost, int[] second, int[] child,
+                                DistanceMatrix distances, NeighbourLists neighbours, SplittableRandom random) {
+        if (n < 5) {
+            System.arraycopy(first, 0, child, 0, n);
+            return firstCost;
+        }
+        buildLinks(first, linkA);
+        buildLinks(second, linkB);
+        nextStamp();
+
+        //find a city with an edge the second parent does not share
+        int start = -1;
+        int offset = random.nextInt(n);
+        for (int k = 0; k < n && start < 0; k++) {
+            int city = (offset + k) % n;
+            if (!hasEdge(linkB, city, linkA[2 * city]) || !hasEdge(linkB, city, linkA[2 * city + 1])) {
+                start = city;
+            }
+        }
+        if (start < 0) {
+            return -1;
+        }
+
+        //the walk always closes on arriving back at start through a second-parent edge, since
+        //every city has as many unshared edges from one parent as from the other
+        int length = 0;
+        int city = start;
+        walk[length++] = city;
+        while (true) {
+            int next = takeEdge(linkA, usedA, linkB, city, random);
+            walk[length++] = next;
+            city = takeEdge(linkB, usedB, linkA, next, random);
+            walk[length++] = city;
+            if (city == start) {
+                break;
+            }
+        }
+
+        //the first parent with the walk's edges exchanged
+        System.arraycopy(linkA, 0, link, 0, 2 * n);
+        double cost = firstCost;
+        for (int i = 0; i + 1 < length; i += 2) {
+            unlink(walk[i], walk[i + 1]);
+            unlink(walk[i + 1], walk[i]);
+            cost -= distances.distance(walk[i], walk[i + 1]);
+        }
+        for (int i = 1; i + 1 < length; i += 2) {
+            relink(walk[i], -1, walk[i + 1]);
+            relink(walk[i + 1], -1, walk[i]);
+            cost += distances.distance(walk[i], walk[i + 1]);
+        }
+
+        cost -= mergeSubtours(distances, neighbours);
+
+        int previous = -1;
+        city = 0;
+        for (int i = 0; i < n; i++) {
+            child[i] = city;
+            int next = link[2 * city] != previous ? link[2 * city] : link[2 * city + 1];
+            previous = city;
+            city = next;
+        }
+        return cost;
+    }
+
+    /**
+     * Join the subtours in link into a single tour.
+     * @return how much cheaper the joins made the tour, usually negative
+     */
+    private double mergeSubtours(DistanceMatrix distances, NeighbourLists neighbours) {
+        int components = 0;
+        nextStamp();
+        for (int c = 0; c < n; c++) {
+            if (stamp[c] == currentStamp) {
+                continue;
+            }
+            int size = 0;
+            int previous = -1;
+            int city = c;
+            do {
+                stamp[city] = currentStamp;
+                component[city] = components;
+                size++;
+                int next = link[2 * city] != previous ? link[2 * city] : link[2 * city + 1];
+                previous = city;
+                city = next;
+            } while (city != c);
+            componentSize[components] = size;
+            componentCity[components] = c;
+            components++;
+        }
+
+        double gain = 0;
+        for (int remaining = components; remaining > 1; remaining--) {
+            int smallest = -1;
+            for (int k = 0; k < components; k++) {
+                if (componentSize[k] > 0 && (smallest < 0 || componentSize[k] < componentSize[smallest])) {
+                    smallest = k;
+                }
+            }
+            gain += join(smallest, distances, neighbours);
+        }
+        return gain;
+    }
+
+    /**
+     * Remove one edge (u, u2) of the given subtour and one edge (v, v2) of another,
+     * and add (u, v) and (u2, v2), choosing the exchange that costs least.
+     * @return how much cheaper the exchange made the tour
+     */
+    private double join(int subtour, DistanceMatrix distances, NeighbourLists neighbours) {
+        int bestU = -1, bestU2 = -1, bestV = -1, bestV2 = -1;
+        int bestGain = Integer.MIN_VALUE;
+        for (int pass = 0; pass < 2 && bestU < 0; pass++) {
+            //first through candidate neighbours, and only if none lies outside the subtour
+            //from the subtour's first city to every city
+            boolean everyCity = pass == 1 || neighbours == null;
+            int previous = -1;
+            int u = componentCity[subtour];
+            do {
+                int candidates = everyCity ? n : neighbours.size();
+                for (int k = 0; k < candidates; k++) {
+                    int v = everyCity ? k : neighbours.get(u, k);
+                    if (component[v] == subtour) {
+                        continue;
+                    }
+                    int uv = distances.distance(u, v);
+                    for (int us = 0; us < 2; us++) {
+                        int u2 = link[2 * u + us];
+                        int removedU = distances.distance(u, u2);
+                        for (int vs = 0; vs < 2; vs++) {
+                            int v2 = link[2 * v + vs];
+                            int gain = removedU + distances.distance(v, v2) - uv - distances.distance(u2, v2);
+                            if (gain > bestGain) {
+                                bestGain = gain;
+                                bestU = u;
+                                bestU2 = u2;
+                                bestV = v;
+                                bestV2 = v2;
+                            }
+                        }
+                    }
+                }
+                int next = link[2 * u] != previous ? link[2 * u] : link[2 * u + 1];
+                previous = u;
+                u = next;
+            } while (u != componentCity[subtour] && !everyCity);
+        }
+
+        //the subtour's cities now belong to the one it joins, relabelled while it is still a cycle
+        int target = component[bestV];
+        int previous = -1;
+        int city = componentCity[subtour];
+        for (int i = 0; i < componentSize[subtour]; i++) {
+            component[city] = target;
+            int next = link[2 * city] != previous ? link[2 * city] : link[2 * city + 1];
+            previous = city;
+            city = next;
+        }
+
+        relink(bestU, bestU2, bestV);
+        relink(bestU2, bestU, bestV2);
+        relink(bestV, bestV2, bestU);
+        relink(bestV2, bestV, bestU2);
+        componentSize[target] += componentSize[subtour];
+        componentSize[subtour] = 0;
+        return bestGain;
+    }
+
+    /**
+     * Follow an unused edge at city that the other parent does not have, marking it used at both ends.
+     */
+    private int takeEdge(int[] links, int[] used, int[] otherLinks, int city, SplittableRandom random) {
+        int first = random.nextBoolean() ? 0 : 1;
+        for (int k = 0; k < 2; k++) {
+            int slot = 2 * city + (first + k) % 2;
+            int next = links[slot];
+            if (used[slot] != currentStamp && !hasEdge(otherLinks, city, next)) {
+                used[slot] = currentStamp;
+                used[links[2 * next] == city ? 2 * next : 2 * next + 1] = currentStamp;
+                return next;
+            }
+        }
+        throw new IllegalStateException("AB-cycle is stuck at city " + city);
+    }
+
+    private void buildLinks(int[] tour, int[] links) {
+        for (int i = 0; i < n; i++) {
+            int city = tour[i];
+            links[2 * city] = tour[i == 0 ? n - 1 : i - 1];
+            links[2 * city + 1] = tour[i == n - 1 ? 0 : i + 1];
+        }
+    }
+
+    private static boolean hasEdge(int[] links, int a, int b) {
+        return links[2 * a] == b || links[2 * a + 1] == b;
+    }
+
+    private void unlink(int city, int neighbour) {
+        relink(city, neighbour, -1);
+    }
+
+    /**
+     * Replace one link of city to from with a link to to.
+     */
+    private void relink(int city, int from, int to) {
+        if (link[2 * city] == from) {
+            link[2 * city] = to;
+        } else {
+            link[2 * city + 1] = to;
+        }
+    }
+
+    private void nextStamp() {
+        currentStamp++;
+        if (currentStamp == 0) {
+            Arrays.fill(stamp, 0);
+            Arrays.fill(usedA, 0);
+            Arrays.fill(usedB, 0);
+            currentStamp = 1;
+        }
+    }
+}
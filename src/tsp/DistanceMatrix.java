@@ -0,0 +1,378 @@
+package tsp;
+
+/**
+ * Precomputed distances between every pair of cities for one city layout.
+ *
+ * Distances keep the integer truncated semantics of City.proximity so a tour
+ * costed through the matrix is identical to one costed through the cities.
+ */
+public class DistanceMatrix {
+
+    /**
+     * How the distances are stored.
+     */
+    public enum Mode {
+        /** Row-major n*n array, one lookup per edge. */
+        FULL,
+        /** Upper triangle only, roughly half the memory of FULL. */
+        TRIANGULAR,
+        /** Nothing is stored, each distance is computed from the coordinates. */
+        ON_THE_FLY
+    }
+
+    /**
+     * Largest city count for which AUTO selection will keep a full matrix (about 64MB).
+     */
+    private static final int fullLimit = 4096;
+
+    /**
+     * Largest city count for which AUTO selection will keep a triangular matrix (about 200MB).
+     */
+    private static final int triangularLimit = 10240;
+
+    /**
+     * Largest array most VMs will allocate.
+     */
+    private static final long maxArrayLength = Integer.MAX_VALUE - 8;
+
+    private final Mode mode;
+
+    /**
+     * The number of cities in the layout.
+     */
+    private final int size;
+
+    /**
+     * City coordinates interleaved as x0, y0, x1, y1, ..., kept so that rows can be rebuilt
+     * or computed on demand. Both coordinates of a city share a cache line.
+     */
+    private final int[] coordinates;
+
+    /**
+     * The stored distances, null in ON_THE_FLY mode.
+     */
+    private final int[] distances;
+
+    /**
+     * Whether whole tours are costed from the coordinates by TourLengthKernel instead of edge by edge.
+     */
+    private boolean blockedKernel;
+
+    /**
+     * Spatial index over the current layout, built the first time it is asked for.
+     */
+    private SpatialGrid grid;
+
+    /**
+     * Nearest neighbours of every city in the current layout, built the first time they are asked for.
+     */
+    private NeighbourLists neighbours;
+
+    /**
+     * Constructor.
+     *
+     * @param cities The city layout to build the matrix for.
+     * @param mode   How the distances are stored, null to pick one by city count.
+     */
+    public DistanceMatrix(City[] cities, Mode mode) {
+        this.size = cities.length;
+        this.mode = mode == null ? modeFor(size) : mode;
+        if (!fits(this.mode, size)) {
+            throw new IllegalArgumentException(this.mode + " distances for " + size + " cities need "
+                    + storedDistances(this.mode, size) + " entries, more than an array can hold");
+        }
+        coordinates = new int[2 * size];
+        distances = this.mode == Mode.ON_THE_FLY ? null : new int[(int) storedDistances(this.mode, size)];
+        //computing from the coordinates beats lookups once the matrix is too big for the cache
+        blockedKernel = this.mode != Mode.FULL;
+        rebuild(cities);
+    }
+
+    /**
+     * Picks the cheapest storage mode that still fits comfortably in memory.
+     *
+     * @param cityCount The number of cities.
+     * @return The mode to use.
+     */
+    public static Mode modeFor(int cityCount) {
+        if (cityCount <= fullLimit) {
+            return Mode.FULL;
+        }
+        if (cityCount <= triangularLimit) {
+            return Mode.TRIANGULAR;
+        }
+        return Mode.ON_THE_FLY;
+    }
+
+    /**
+     * @param mode      A storage mode.
+     * @param cityCount The number of cities.
+     * @return Whether the distances for that many cities fit in one array in that mode.
+     */
+    public static boolean fits(Mode mode, int cityCount) {
+        return storedDistances(mode, cityCount) <= maxArrayLength;
+    }
+
+    /**
+     * The mode to use when the requested one cannot hold that many cities: the requested mode if
+     * it fits, else TRIANGULAR if that fits, else ON_THE_FLY.
+     *
+     * @param mode      The requested mode.
+     * @param cityCount The number of cities.
+     * @return A mode that fits.
+     */
+    public static Mode fallbackFor(Mode mode, int cityCount) {
+        if (fits(mode, cityCount)) {
+            return mode;
+        }
+        return mode == Mode.FULL && fits(Mode.TRIANGULAR, cityCount) ? Mode.TRIANGULAR : Mode.ON_THE_FLY;
+    }
+
+    /**
+     * @return How many distances the mode stores for that many cities, counted without overflow.
+     */
+    private static long storedDistances(Mode mode, int cityCount) {
+        if (mode == Mode.FULL) {
+            return (long) cityCount * cityCount;
+        }
+        if (mode == Mode.TRIANGULAR) {
+            return (long) cityCount * (cityCount + 1) / 2;
+        }
+        return 0;
+    }
+
+    /**
+     * Recompute every distance for a new city layout, reusing the existing storage.
+     *
+     * @param cities The new city positions, must be the same length as the original layout.
+     */
+    public void rebuild(City[] cities) {
+        if (cities.length != size) {
+            throw new IllegalArgumentException("Expected " + size + " cities but got " + cities.length);
+        }
+        grid = null;
+        neighbours = null;
+        for (int i = 0; i < size; i++) {
+            coordinates[2 * i] = cities[i].getx();
+            coordinates[2 * i + 1] = cities[i].gety();
+        }
+        if (mode == Mode.FULL) {
+            for (int i = 0; i < size; i++) {
+                int row = i * size;
+                distances[row + i] = 0;
+                for (int j = i + 1; j < size; j++) {
+                    int d = compute(i, j);
+                    distances[row + j] = d;
+                    distances[j * size + i] = d;
+                }
+            }
+        } else if (mode == Mode.TRIANGULAR) {
+            for (int i = 0; i < size; i++) {
+                int row = rowStart(i);
+                for (int j = i; j < size; j++) {
+                    distances[row + j - i] = compute(i, j);
+                }
+            }
+        }
+    }
+
+    /**
+     * Move some cities to new positions, recomputing only the distances that involve them.
+     *
+     * @param cities The new city positions, must be the same length as the original layout.
+     * @param moved  The cities whose positions changed, in moved[0 .. count).
+     * @param count  How many cities moved.
+     */
+    public void update(City[] cities, int[] moved, int count) {
+        if (cities.length != size) {
+            throw new IllegalArgumentException("Expected " + size + " cities but got " + cities.length);
+        }
+        if (count == 0) {
+            return;
+        }
+        grid = null;
+        neighbours = null;
+        for (int m = 0; m < count; m++) {
+            int i = moved[m];
+            coordinates[2 * i] = cities[i].getx();
+            coordinates[2 * i + 1] = cities[i].gety();
+        }
+        if (mode == Mode.FULL) {
+            for (int m = 0; m < count; m++) {
+                int i = moved[m];
+                int row = i * size;
+                for (int j = 0; j < size; j++) {
+                    int d = compute(i, j);
+                    distances[row + j] = d;
+                    distances[j * size + i] = d;
+                }
+            }
+        } else if (mode == Mode.TRIANGULAR) {
+            for (int m = 0; m < count; m++) {
+                int i = moved[m];
+                for (int j = 0; j < i; j++) {
+                    distances[rowStart(j) + i - j] = compute(j, i);
+                }
+                int row = rowStart(i);
+                for (int j = i; j < size; j++) {
+                    distances[row + j - i] = compute(i, j);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param a The first city.
+     * @param b The second city.
+     * @return The distance between cities a and b.
+     */
+    public int distance(int a, int b) {
+        if (mode == Mode.FULL) {
+            return distances[a * size + b];
+        }
+        if (mode == Mode.TRIANGULAR) {
+            if (a > b) {
+                int temp = a;
+                a = b;
+                b = temp;
+            }
+            return distances[rowStart(a) + b - a];
+        }
+        return compute(a, b);
+    }
+
+    /**
+     * Calculate the length of a closed tour, including the return home.
+     *
+     * @param tour The order the cities are visited in.
+     * @return The cost of the tour.
+     */
+    public double tourCost(int[] tour) {
+        return tourCost(tour, 0, tour.length);
+    }
+
+    /**
+     * Calculate the length of a closed tour stored at genes[offset .. offset + length), including the return home.
+     *
+     * @param genes  The buffer holding the tour.
+     * @param offset Where the tour starts in genes.
+     * @param length The number of cities in the tour.
+     * @return The cost of the tour.
+     */
+    public double tourCost(int[] genes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (blockedKernel) {
+            return TourLengthKernel.forThread().length(coordinates, genes, offset, length);
+        }
+        int end = offset + length - 1;
+        double cost = 0;
+        for (int i = offset; i < end; i++) {
+            cost += distance(genes[i], genes[i + 1]);
+        }
+        cost += distance(genes[offset], genes[end]); //Adding return home
+        return cost;
+    }
+
+    /**
+     * Calculate the length of a closed tour stored as chars, as in a compact TourPool.
+     *
+     * @param genes  The buffer holding the tour.
+     * @param offset Where the tour starts in genes.
+     * @param length The number of cities in the tour.
+     * @return The cost of the tour.
+     */
+    public double tourCost(char[] genes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (blockedKernel) {
+            return TourLengthKernel.forThread().length(coordinates, genes, offset, length);
+        }
+        int end = offset + length - 1;
+        double cost = 0;
+        for (int i = offset; i < end; i++) {
+            cost += distance(genes[i], genes[i + 1]);
+        }
+        cost += distance(genes[offset], genes[end]); //Adding return home
+        return cost;
+    }
+
+    /**
+     * Choose how whole tours are costed. The blocked kernel computes every edge from the
+     * coordinates, which beats lookups once the matrix no longer fits in cache.
+     *
+     * @param blocked Whether to use TourLengthKernel rather than one lookup per edge.
+     */
+    public void useBlockedKernel(boolean blocked) {
+        blockedKernel = blocked;
+    }
+
+    /**
+     * @return A spatial index over the current layout, shared by every caller until the next rebuild.
+     */
+    public synchronized SpatialGrid spatialGrid() {
+        if (grid == null) {
+            grid = new SpatialGrid(this);
+        }
+        return grid;
+    }
+
+    /**
+     * @param k How many neighbours each city should have.
+     * @return The k nearest neighbours of every city, shared by every caller until the next rebuild.
+     */
+    public synchronized NeighbourLists neighbourLists(int k) {
+        if (neighbours == null || neighbours.size() != Math.min(k, size - 1)) {
+            neighbours = new NeighbourLists(this, k);
+        }
+        return neighbours;
+    }
+
+    /**
+     * @return The number of cities in the layout.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return How the distances are stored.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @param i The city.
+     * @return The x position the matrix was built with.
+     */
+    public int getx(int i) {
+        return coordinates[2 * i];
+    }
+
+    /**
+     * @param i The city.
+     * @return The y position the matrix was built with.
+     */
+    public int gety(int i) {
+        return coordinates[2 * i + 1];
+    }
+
+    /**
+     * Same formula as City.proximity, on the stored coordinates.
+     */
+    private int compute(int a, int b) {
+        int xdiff = coordinates[2 * a] - coordinates[2 * b];
+        int ydiff = coordinates[2 * a + 1] - coordinates[2 * b + 1];
+        return (int) Math.sqrt(xdiff * xdiff + ydiff * ydiff);
+    }
+
+    /**
+     * Offset of row i in the packed upper triangle (which includes the diagonal).
+     */
+    private int rowStart(int i) {
+        return (int) ((long) i * size - (long) i * (i - 1) / 2);
+    }
+}
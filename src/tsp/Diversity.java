@@ -0,0 +1,285 @@
+package tsp;
+
+import java.util.Arrays;
+
+/**
+ * Tracks how varied one population is and steers its mutation when it collapses.
+ *
+ * Tours are identified by a Zobrist style hash: every undirected edge has a
+ * pseudo random key and a tour hashes to the XOR of the keys of its edges, so the
+ * same cycle hashes the same whatever city it starts at and in either direction.
+ * An inversion changes two edges, so a child's hash follows from its parent's in
+ * four XORs and duplicates are caught before the child is built.
+ *
+ * Diversity is measured as the edge entropy around a fixed sample of cities: how
+ * evenly the population spreads over the edges at each sampled city, 0 when every
+ * tour uses the same edges and 1 when no two tours share one. When it falls below
+ * lowEntropy the number of inversions per child doubles, up to maxStrength, and
+ * once that is not enough the worst tours are replaced by fresh nearest neighbour
+ * tours. Strength halves again once the entropy is back above highEntropy.
+ */
+public class Diversity {
+
+    private static final double lowEntropy = 0.1;
+    private static final double highEntropy = 0.25;
+    private static final int maxStrength = 8;
+
+    /**
+     * How many cities the entropy is measured around, spread evenly over the city numbers.
+     */
+    private static final int sampleSize = 128;
+
+    /**
+     * The share of the population replaced by fresh tours when mutation alone cannot restore diversity.
+     */
+    private static final double injectedFraction = 0.1;
+
+    /**
+     * Hashes of the tours in the population, open addressed with 0 marking a free slot.
+     */
+    private long[] hashes = new long[64];
+    private int hashCount;
+
+    /**
+     * Children turned away by admit since the last survey.
+     */
+    private int skipped;
+
+    /**
+     * For each city the slot it has in the sample, or -1, and the neighbours seen at each sampled city.
+     */
+    private int[] sampleSlots;
+    private int[] sampled;
+    private int[] seen;
+
+    /**
+     * How many inversions make a child, raised while diversity is low.
+     */
+    private int strength = 1;
+
+    private double entropy = 1;
+
+    /**
+     * @return The hash of a closed tour, the XOR of the keys of its edges.
+     */
+    static long tourHash(int[] tour) {
+        int n = tour.length;
+        if (n < 2) {
+            return 0;
+        }
+        long hash = edgeKey(tour[n - 1], tour[0]);
+        for (int i = 1; i < n; i++) {
+            hash ^= edgeKey(tour[i - 1], tour[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * How a tour's hash changes when tour[lower..upper] is reversed, as in Chromosome.inversionDelta.
+     *
+     * @return The value to XOR into the tour's hash.
+     */
+    static long inversionHashChange(int[] tour, int lower, int upper) {
+        int n = tour.length;
+        //reversing the whole tour, or everything but one city, leaves the same set of edges
+        if (upper - lower >= n - 2) {
+            return 0;
+        }
+        int before = tour[lower == 0 ? n - 1 : lower - 1];
+        int after = tour[upper == n - 1 ? 0 : upper + 1];
+        int first = tour[lower];
+        int last = tour[upper];
+        return edgeKey(before, first) ^ edgeKey(last, after) ^ edgeKey(before, last) ^ edgeKey(first, after);
+    }
+
+    /**
+     * The key of the undirected edge between two cities, the SplittableRandom mix of the ordered pair.
+     */
+    private static long edgeKey(int a, int b) {
+        long z = a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * Start a generation: remember the hash of every tour and measure the edge entropy.
+     *
+     * @param chromosomes The population.
+     */
+    public void survey(Chromosome[] chromosomes) {
+        int capacity = Integer.highestOneBit(Math.max(16, chromosomes.length * 4) - 1) << 1;
+        if (hashes.length != capacity) {
+            hashes = new long[capacity];
+        } else {
+            Arrays.fill(hashes, 0);
+        }
+        hashCount = 0;
+        skipped = 0;
+        for (Chromosome chromosome : chromosomes) {
+            add(chromosome.hash());
+        }
+        entropy = measureEntropy(chromosomes);
+    }
+
+    /**
+     * @param hash A tour hash.
+     * @return Whether a tour with that hash is in the population.
+     */
+    public boolean contains(long hash) {
+        hash = hash == 0 ? 1 : hash;
+        int mask = hashes.length - 1;
+        for (int slot = (int) hash & mask; hashes[slot] != 0; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remember a tour that joined the population. Tours that left it are only forgotten at the next survey.
+     *
+     * @param hash The tour's hash.
+     */
+    public void add(long hash) {
+        hash = hash == 0 ? 1 : hash;
+        if ((hashCount + 1) * 2 > hashes.length) {
+            long[] old = hashes;
+            hashes = new long[old.length * 2];
+            hashCount = 0;
+            for (long h : old) {
+                if (h != 0) {
+                    add(h);
+                }
+            }
+        }
+        int mask = hashes.length - 1;
+        int slot = (int) hash & mask;
+        while (hashes[slot] != 0) {
+            if (hashes[slot] == hash) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        hashCount++;
+    }
+
+    /**
+     * Let a new tour into the population unless it already holds the same tour.
+     *
+     * @param hash The new tour's hash.
+     * @return Whether the tour is new, in which case it is remembered.
+     */
+    public boolean admit(long hash) {
+        if (contains(hash)) {
+            skipped++;
+            return false;
+        }
+        add(hash);
+        return true;
+    }
+
+    /**
+     * @return How many tours admit turned away since the last survey.
+     */
+    public int skipped() {
+        return skipped;
+    }
+
+    /**
+     * Adjust the mutation strength to the entropy measured by the last survey.
+     *
+     * @return How many of the worst tours to replace with fresh ones this generation, usually 0.
+     */
+    public int adapt(int populationSize) {
+        if (entropy < lowEntropy) {
+            if (strength < maxStrength) {
+                strength *= 2;
+                return 0;
+            }
+            //mutation alone did not bring diversity back, start over from new tours
+            strength = 1;
+            return Math.max(1, (int) (populationSize * injectedFraction));
+        }
+        if (entropy > highEntropy && strength > 1) {
+            strength /= 2;
+        }
+        return 0;
+    }
+
+    /**
+     * @return How many inversions make a child.
+     */
+    public int strength() {
+        return strength;
+    }
+
+    /**
+     * @return The edge entropy measured by the last survey, between 0 and 1.
+     */
+    public double entropy() {
+        return entropy;
+    }
+
+    /**
+     * Average over the sampled cities of the entropy of the edges the population uses there,
+     * divided by its largest possible value.
+     */
+    private double measureEntropy(Chromosome[] chromosomes) {
+        int size = chromosomes.length;
+        if (size < 2 || chromosomes[0].cityList.length < 3) {
+            return 0;
+        }
+        int n = chromosomes[0].cityList.length;
+        int samples = Math.min(n, sampleSize);
+        if (sampleSlots == null || sampleSlots.length != n) {
+            sampleSlots = new int[n];
+            Arrays.fill(sampleSlots, -1);
+            sampled = new int[samples];
+            for (int s = 0; s < samples; s++) {
+                sampled[s] = (int) ((long) s * n / samples);
+                sampleSlots[sampled[s]] = s;
+            }
+        }
+        int perCity = 2 * size;
+        if (seen == null || seen.length != samples * perCity) {
+            seen = new int[samples * perCity];
+        }
+
+        //one pass over every tour, noting both neighbours of each sampled city
+        for (int c = 0; c < size; c++) {
+            int[] tour = chromosomes[c].cityList;
+            for (int i = 0; i < n; i++) {
+                int s = sampleSlots[tour[i]];
+                if (s >= 0) {
+                    int at = s * perCity + 2 * c;
+                    seen[at] = tour[i == 0 ? n - 1 : i - 1];
+                    seen[at + 1] = tour[i == n - 1 ? 0 : i + 1];
+                }
+            }
+        }
+
+        double total = 0;
+        for (int s = 0; s < samples; s++) {
+            int from = s * perCity;
+            int to = from + perCity;
+            Arrays.sort(seen, from, to);
+            double cityEntropy = 0;
+            int run = 1;
+            for (int i = from + 1; i <= to; i++) {
+                if (i < to && seen[i] == seen[i - 1]) {
+                    run++;
+                    continue;
+                }
+                double p = (double) run / size;
+                cityEntropy -= p * Math.log(p);
+                run = 1;
+            }
+            total += cityEntropy;
+        }
+        //every tour has two edges at a city, so the entropy there is at most 2 log size
+        return total / (samples * 2 * Math.log(size));
+    }
+}
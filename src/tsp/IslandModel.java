@@ -0,0 +1,249 @@
+package tsp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Several populations evolving side by side, one task per island per generation,
+ * which periodically send copies of their best tours to each other.
+ *
+ * Migrants travel through double-buffered inboxes: an island writes copies of its
+ * elites into its neighbours' next inboxes at the end of a migration generation,
+ * the buffers are swapped once every island has finished, and each island drains
+ * its own inbox at the start of the following generation, replacing its worst
+ * chromosomes.
+ */
+public class IslandModel {
+
+    /**
+     * Which islands send migrants to which.
+     */
+    public enum Topology {
+        /** Island i sends to island i + 1, the last sending to the first. */
+        RING,
+        /** Every island sends to every other island. */
+        FULL
+    }
+
+    private final Chromosome[][] islands;
+    /**
+     * Migrants waiting to join each island, at inboxes[target][source * migrants + m],
+     * and the migrants sent during the current generation, laid out the same way.
+     * Islands only read inboxes and only write nextInboxes, and the two are swapped
+     * after every island's task has completed, so migrants always arrive in the
+     * generation after they were sent whatever the thread scheduling.
+     */
+    private int[][][] inboxes;
+    private int[][][] nextInboxes;
+
+    /**
+     * One generator per island, split from the run's generator.
+     */
+    private final SplittableRandom[] randoms;
+
+    /**
+     * One diversity tracker per island, or nulls when diversity is not tracked.
+     */
+    private final Diversity[] diversities;
+    private final Topology topology;
+
+    /**
+     * How many generations pass between migrations.
+     */
+    private final int interval;
+
+    /**
+     * How many of its best tours an island sends to each neighbour.
+     */
+    private final int migrants;
+
+    private final ExecutorService executor;
+
+    /**
+     * Where every island records its counters and timings.
+     */
+    private final RunMetrics metrics;
+
+    /**
+     * Generations evolved so far.
+     */
+    private int generation;
+
+    /**
+     * Constructor, seeds every island with nearest neighbour tours.
+     *
+     * @param islandCount    How many populations to evolve.
+     * @param populationSize How many chromosomes each island holds.
+     * @param distances      The distances between the cities for the current layout.
+     * @param topology       Which islands send migrants to which.
+     * @param interval       How many generations pass between migrations.
+     * @param migrants       How many tours an island sends to each neighbour.
+     * @param threads        How many islands may evolve at the same time.
+     * @param metrics        Where every island records its counters and timings.
+     * @param random         The run's generator, which each island splits its own from.
+     */
+    public IslandModel(int islandCount, int populationSize, DistanceMatrix distances,
+                       Topology topology, int interval, int migrants, int threads, RunMetrics metrics,
+                       SplittableRandom random) {
+        if (migrants >= populationSize) {
+            throw new IllegalArgumentException("Cannot migrate " + migrants + " of " + populationSize + " chromosomes");
+        }
+        this.topology = topology;
+        this.interval = Math.max(1, interval);
+        this.migrants = migrants;
+        this.metrics = metrics;
+
+        islands = new Chromosome[islandCount][populationSize];
+        inboxes = new int[islandCount][islandCount * migrants][];
+        nextInboxes = new int[islandCount][islandCount * migrants][];
+        randoms = new SplittableRandom[islandCount];
+        diversities = new Diversity[islandCount];
+        for (int i = 0; i < islandCount; i++) {
+            randoms[i] = random.split();
+            diversities[i] = TSP.newDiversity();
+            for (int x = 0; x < populationSize; x++) {
+                islands[i][x] = new Chromosome(distances, new int[0], randoms[i]);
+            }
+        }
+        executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, islandCount)));
+    }
+
+    /**
+     * Evolve every island by one generation, exchanging migrants when the interval comes round.
+     *
+     * @param distances The distances between the cities for the current layout.
+     */
+    public void evolve(final DistanceMatrix distances) {
+        final boolean migrate = (generation + 1) % interval == 0;
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < islands.length; i++) {
+            final int island = i;
+            futures.add(executor.submit(new Runnable() {
+                public void run() {
+                    immigrate(island, distances);
+                    TSP.evolve(islands[island], distances, metrics, diversities[island]);
+                    if (migrate) {
+                        emigrate(island);
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evolving islands", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("An island failed to evolve", e.getCause());
+        }
+        //every island has drained its inbox, so the emptied buffers take the next generation's migrants
+        int[][][] drained = inboxes;
+        inboxes = nextInboxes;
+        nextInboxes = drained;
+        generation++;
+    }
+
+    /**
+     * @return The cheapest chromosome across all islands.
+     */
+    public Chromosome best() {
+        Chromosome best = islands[0][0];
+        for (Chromosome[] island : islands) {
+            if (island[0].getCost() < best.getCost()) {
+                best = island[0];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The mean cost of every chromosome across all islands.
+     */
+    public double meanCost() {
+        double sum = 0;
+        int count = 0;
+        for (Chromosome[] island : islands) {
+            for (Chromosome chromosome : island) {
+                sum += chromosome.getCost();
+            }
+            count += island.length;
+        }
+        return sum / count;
+    }
+
+    /**
+     * @return Every island's population, for checkpoints. Only valid between generations.
+     */
+    Chromosome[][] populations() {
+        return islands;
+    }
+
+    /**
+     * Carry on counting generations from a checkpoint, so migrations keep their timing.
+     *
+     * @param generation Generations evolved before the checkpoint.
+     */
+    void resumeAt(int generation) {
+        this.generation = generation;
+    }
+
+    /**
+     * Correct the cost of every chromosome on every island for cities that have moved.
+     *
+     * @param moves The cities that moved.
+     */
+    public void adjustCosts(CityMoves moves) {
+        for (Chromosome[] island : islands) {
+            moves.adjust(island);
+        }
+    }
+
+    /**
+     * Stop the worker threads. The model cannot evolve afterwards.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Replace the worst chromosomes of an island with the tours waiting in its inbox.
+     * The islands are still sorted from their last generation.
+     */
+    private void immigrate(int island, DistanceMatrix distances) {
+        Chromosome[] chromosomes = islands[island];
+        int[][] inbox = inboxes[island];
+        int slot = chromosomes.length - 1;
+        for (int i = 0; i < inbox.length; i++) {
+            //never replace the island's best, drop any surplus migrants
+            if (inbox[i] != null && slot > 0) {
+                chromosomes[slot--] = new Chromosome(distances, inbox[i], randoms[island]);
+            }
+            inbox[i] = null;
+        }
+    }
+
+    /**
+     * Send copies of an island's best tours to its neighbours, to arrive next generation.
+     */
+    private void emigrate(int island) {
+        Chromosome[] chromosomes = islands[island];
+        for (int target = 0; target < islands.length; target++) {
+            if (target == island) {
+                continue;
+            }
+            if (topology == Topology.RING && target != (island + 1) % islands.length) {
+                continue;
+            }
+            for (int m = 0; m < migrants; m++) {
+                nextInboxes[target][island * migrants + m] = chromosomes[m].cityList.clone();
+            }
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package tsp;
+
+/**
+ * Variable depth improvement in the style of Lin-Kernighan, built from a chain
+ * of sequential 2-opt moves that all share the first city of the chain.
+ *
+ * A chain breaks the edge (t1, t2), joins t2 to a candidate neighbour t3 and
+ * closes the tour through t3's neighbour t4, giving a valid tour after every
+ * step. It then carries on by breaking the new closing edge (t1, t4), for as
+ * long as the cumulative gain stays positive or until maxDepth steps. The
+ * chain is rolled back to its cheapest tour. A chain of two steps is a
+ * sequential 3-opt move, so this subsumes Or-3opt.
+ *
+ * Moves work on the chromosome's cityList and its city to position array,
+ * which is kept in step with every reversal so each lookup is O(1).
+ */
+public class LinKernighan {
+
+    /**
+     * How many move evaluations pass between checks of the clock.
+     */
+    private static final int clockInterval = 256;
+
+    private final DistanceMatrix distances;
+    private final NeighbourLists neighbours;
+
+    /**
+     * Most 2-opt steps in one chain.
+     */
+    private final int maxDepth;
+
+    /**
+     * The steps of the current chain: t2, t3, t4 and the cost change of each.
+     */
+    private final int[] log;
+    private final int[] logDelta;
+
+    /**
+     * Cities used as t3 in the current chain have stamp equal to chainStamp.
+     */
+    private final int[] stamp;
+    private int chainStamp;
+
+    /**
+     * The step picked by chooseNext.
+     */
+    private int nextT3;
+    private int nextT4;
+
+    /**
+     * Cities whose don't-look bit is clear, as a circular queue.
+     */
+    private final int[] queue;
+    private final boolean[] queued;
+    private int head;
+    private int queueSize;
+
+    private long maxEvaluations = Long.MAX_VALUE;
+    private long maxNanos = Long.MAX_VALUE;
+
+    /**
+     * State of the current call.
+     */
+    private int[] tour;
+    private int[] position;
+    private int n;
+    private double cost;
+    private long evaluations;
+    private long deadline;
+    private boolean outOfBudget;
+
+    /**
+     * Constructor.
+     *
+     * @param distances  The distances between the cities for the current layout.
+     * @param neighbours The candidate neighbours of every city for the current layout.
+     * @param maxDepth   Most 2-opt steps in one chain.
+     */
+    public LinKernighan(DistanceMatrix distances, NeighbourLists neighbours, int maxDepth) {
+        this.distances = distances;
+        this.neighbours = neighbours;
+        this.maxDepth = Math.max(1, maxDepth);
+        log = new int[3 * this.maxDepth];
+        logDelta = new int[this.maxDepth];
+        stamp = new int[distances.size()];
+        queue = new int[distances.size()];
+        queued = new boolean[distances.size()];
+    }
+
+    /**
+     * Limit how much work each call may do.
+     *
+     * @param maxEvaluations Most move evaluations per call, 0 for no limit.
+     * @param maxMillis      Most wall clock time per call, 0 for no limit.
+     */
+    public void setBudget(long maxEvaluations, long maxMillis) {
+        this.maxEvaluations = maxEvaluations > 0 ? maxEvaluations : Long.MAX_VALUE;
+        this.maxNanos = maxMillis > 0 ? maxMillis * 1000000L : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return How many moves the last call evaluated.
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Run chains from every city until none improves or the budget runs out.
+     *
+     * @param chromosome The chromosome to improve in place, its cost must be current.
+     * @return Whether the tour got cheaper.
+     */
+    public boolean improve(Chromosome chromosome) {
+        if (!start(chromosome)) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            push(tour[i]);
+        }
+        return finish(chromosome);
+    }
+
+    /**
+     * Run chains only from the given cities and any city whose edges change as a result,
+     * for repairing a tour after a small perturbation.
+     *
+     * @param chromosome The chromosome to improve in place, its cost must be current.
+     * @param cities     The cities to start from.
+     * @return Whether the tour got cheaper.
+     */
+    public boolean improveAround(Chromosome chromosome, int... cities) {
+        if (!start(chromosome)) {
+            return false;
+        }
+        for (int city : cities) {
+            push(city);
+        }
+        return finish(chromosome);
+    }
+
+    private boolean start(Chromosome chromosome) {
+        tour = chromosome.cityList;
+        n = tour.length;
+        evaluations = 0;
+        outOfBudget = false;
+        head = 0;
+        queueSize = 0;
+        //a call that ran out of budget leaves cities flagged, which would keep them out of this call's queue
+        for (int i = 0; i < n; i++) {
+            queued[tour[i]] = false;
+        }
+        if (n < 5 || neighbours.size() == 0) {
+            return false;
+        }
+        position = chromosome.positions();
+        deadline = maxNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + maxNanos;
+        cost = chromosome.getCost();
+        return true;
+    }
+
+    private boolean finish(Chromosome chromosome) {
+        double startCost = cost;
+        while (queueSize > 0 && !outOfBudget) {
+            int t1 = poll();
+            if (chainFrom(t1, next(position[t1])) || chainFrom(t1, previous(position[t1]))) {
+                push(t1);
+            }
+        }
+        //the position array was kept up to date, so the chromosome's copy stays valid
+        chromosome.cost = cost;
+        chromosome.edgesChanged();
+        return cost < startCost;
+    }
+
+    /**
+     * Try every first step breaking edge (t1, tour[t2Position]), following each greedily.
+     */
+    private boolean chainFrom(int t1, int t2Position) {
+        int t2 = tour[t2Position];
+        int broken = distances.distance(t1, t2);
+        for (int k = 0; k < neighbours.size(); k++) {
+            int t3 = neighbours.get(t2, k);
+            //neighbours are nearest first, so no later one has a positive gain either
+            if (broken - distances.distance(t2, t3) <= 0) {
+                break;
+            }
+            int t4 = closingPartner(t1, t2, t3);
+            if (t4 < 0) {
+                continue;
+            }
+            if (count()) {
+                return false;
+            }
+
+            chainStamp++;
+            double startCost = cost;
+            double bestCost = cost;
+            int bestDepth = 0;
+            int depth = 0;
+            step(depth++, t1, t2, t3, t4);
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestDepth = depth;
+            }
+
+            int loose = t4;
+            while (depth < maxDepth && !outOfBudget && chooseNext(t1, loose, startCost)) {
+                step(depth++, t1, loose, nextT3, nextT4);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestDepth = depth;
+                }
+                loose = nextT4;
+            }
+
+            while (depth > bestDepth) {
+                undo(--depth, t1);
+            }
+            if (bestDepth > 0) {
+                for (int i = 0; i < 3 * bestDepth; i++) {
+                    push(log[i]);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The best next step of a chain: the t3 that maximises the edge it lets us break
+     * minus the edge it adds, while keeping the cumulative gain positive.
+     * The step is left in nextT3 and nextT4.
+     * @return false if there is no such step
+     */
+    private boolean chooseNext(int t1, int t2, double startCost) {
+        double gain = startCost - cost + distances.distance(t1, t2);
+        int bestT3 = -1;
+        int bestT4 = -1;
+        int bestScore = Integer.MIN_VALUE;
+        for (int k = 0; k < neighbours.size(); k++) {
+            int t3 = neighbours.get(t2, k);
+            int added = distances.distance(t2, t3);
+            if (gain - added <= 0) {
+                break;
+            }
+            if (stamp[t3] == chainStamp) {
+                continue;
+            }
+            int t4 = closingPartner(t1, t2, t3);
+            if (t4 < 0) {
+                continue;
+            }
+            if (count()) {
+                return false;
+            }
+            int score = distances.distance(t3, t4) - added;
+            if (score > bestScore) {
+                bestScore = score;
+                bestT3 = t3;
+                bestT4 = t4;
+            }
+        }
+        nextT3 = bestT3;
+        nextT4 = bestT4;
+        return bestT3 >= 0;
+    }
+
+    /**
+     * With t2 next to t1, the neighbour of t3 on t2's side that must be detached from t3
+     * for the tour to close through (t1, t4).
+     * @return t4, or -1 if t3 cannot be used
+     */
+    private int closingPartner(int t1, int t2, int t3) {
+        if (t3 == t1 || t3 == t2) {
+            return -1;
+        }
+        boolean forward = tour[next(position[t1])] == t2;
+        int t4 = tour[forward ? previous(position[t3]) : next(position[t3])];
+        return t4 == t2 || t4 == t1 ? -1 : t4;
+    }
+
+    /**
+     * Replace edges (t1, t2) and (t4, t3) with (t2, t3) and (t1, t4) by reversing the path t2..t4.
+     */
+    private void step(int depth, int t1, int t2, int t3, int t4) {
+        int delta = distances.distance(t2, t3) + distances.distance(t1, t4)
+                - distances.distance(t1, t2) - distances.distance(t3, t4);
+        if (tour[next(position[t1])] == t2) {
+            reverseShorter(position[t2], position[t4]);
+        } else {
+            reverseShorter(position[t4], position[t2]);
+        }
+        cost += delta;
+        stamp[t3] = chainStamp;
+        log[3 * depth] = t2;
+        log[3 * depth + 1] = t3;
+        log[3 * depth + 2] = t4;
+        logDelta[depth] = delta;
+    }
+
+    /**
+     * Put back edges (t1, t2) and (t4, t3) removed by a step.
+     */
+    private void undo(int depth, int t1) {
+        int t2 = log[3 * depth];
+        int t4 = log[3 * depth + 2];
+        if (tour[next(position[t1])] == t4) {
+            reverseShorter(position[t4], position[t2]);
+        } else {
+            reverseShorter(position[t2], position[t4]);
+        }
+        cost -= logDelta[depth];
+    }
+
+    /**
+     * Reverse the cyclic range from..to, or the rest of the tour if that is shorter,
+     * which gives the same closed tour travelled the other way.
+     */
+    private void reverseShorter(int from, int to) {
+        int length = (to - from + n) % n + 1;
+        if (2 * length > n) {
+            from = next(to);
+            length = n - length;
+        }
+        int i = from;
+        int j = (from + length - 1) % n;
+        for (int k = 0; k < length / 2; k++) {
+            int temp = tour[i];
+            tour[i] = tour[j];
+            tour[j] = temp;
+            position[tour[i]] = i;
+            position[tour[j]] = j;
+            i = next(i);
+            j = previous(j);
+        }
+    }
+
+    private int next(int index) {
+        return index == n - 1 ? 0 : index + 1;
+    }
+
+    private int previous(int index) {
+        return index == 0 ? n - 1 : index - 1;
+    }
+
+    /**
+     * Count one move evaluation.
+     * @return true if the budget has run out
+     */
+    private boolean count() {
+        evaluations++;
+        if (evaluations >= maxEvaluations
+                || (evaluations % clockInterval == 0 && System.nanoTime() > deadline)) {
+            outOfBudget = true;
+        }
+        return outOfBudget;
+    }
+
+    private void push(int city) {
+        if (!queued[city]) {
+            queued[city] = true;
+            queue[(head + queueSize) % n] = city;
+            queueSize++;
+        }
+    }
+
+    private int poll() {
+        int city = queue[head];
+        head = next(head);
+        queueSize--;
+        queued[city] = false;
+        return city;
+    }
+}
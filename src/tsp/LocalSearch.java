@@ -0,0 +1,341 @@
+package tsp;
+
+/**
+ * Improves a single tour in place with 2-opt and Or-opt moves restricted to
+ * candidate neighbours, until no improving move remains or the budget runs out.
+ *
+ * Don't-look bits keep the search cheap: only cities in the work queue are
+ * examined, a city leaves the queue when no improving move starts from it,
+ * and the endpoints of every changed edge are queued again.
+ */
+public class LocalSearch {
+
+    /**
+     * Longest segment Or-opt will move.
+     */
+    private static final int maxSegment = 3;
+
+    /**
+     * How many move evaluations pass between checks of the clock.
+     */
+    private static final int clockInterval = 256;
+
+    private final DistanceMatrix distances;
+    private final NeighbourLists neighbours;
+
+    /**
+     * Where each city sits in the tour being improved.
+     */
+    private final int[] position;
+
+    /**
+     * Cities whose don't-look bit is clear, as a circular queue.
+     */
+    private final int[] queue;
+    private final boolean[] queued;
+    private int head;
+    private int queueSize;
+
+    private long maxEvaluations = Long.MAX_VALUE;
+    private long maxNanos = Long.MAX_VALUE;
+
+    /**
+     * State of the current call to improve.
+     */
+    private int[] tour;
+    private int n;
+    private double cost;
+    private long evaluations;
+    private long deadline;
+    private boolean outOfBudget;
+
+    /**
+     * Constructor.
+     *
+     * @param distances  The distances between the cities for the current layout.
+     * @param neighbours The candidate neighbours of every city for the current layout.
+     */
+    public LocalSearch(DistanceMatrix distances, NeighbourLists neighbours) {
+        this.distances = distances;
+        this.neighbours = neighbours;
+        position = new int[distances.size()];
+        queue = new int[distances.size()];
+        queued = new boolean[distances.size()];
+    }
+
+    /**
+     * Limit how much work each call to improve may do.
+     *
+     * @param maxEvaluations Most move evaluations per call, 0 for no limit.
+     * @param maxMillis      Most wall clock time per call, 0 for no limit.
+     */
+    public void setBudget(long maxEvaluations, long maxMillis) {
+        this.maxEvaluations = maxEvaluations > 0 ? maxEvaluations : Long.MAX_VALUE;
+        this.maxNanos = maxMillis > 0 ? maxMillis * 1000000L : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return How many moves the last call to improve evaluated.
+     */
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Apply improving moves to a chromosome's tour in place, keeping its cost up to date.
+     *
+     * @param chromosome The chromosome to improve, its cost must be current.
+     * @return Whether the tour got cheaper.
+     */
+    public boolean improve(Chromosome chromosome) {
+        tour = chromosome.cityList;
+        n = tour.length;
+        evaluations = 0;
+        outOfBudget = false;
+        if (n < maxSegment + 3 || neighbours.size() == 0) {
+            return false;
+        }
+        deadline = maxNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + maxNanos;
+        double startCost = chromosome.getCost();
+        cost = startCost;
+
+        head = 0;
+        queueSize = 0;
+        for (int i = 0; i < n; i++) {
+            position[tour[i]] = i;
+            queued[tour[i]] = false;
+        }
+        for (int i = 0; i < n; i++) {
+            push(tour[i]);
+        }
+
+        while (queueSize > 0 && !outOfBudget) {
+            int city = poll();
+            if (twoOpt(city) || orOpt(city)) {
+                push(city);
+            }
+        }
+
+        chromosome.cost = cost;
+        chromosome.tourChanged();
+        return cost < startCost;
+    }
+
+    /**
+     * Try to replace an edge at the given city with an edge to one of its neighbours.
+     */
+    private boolean twoOpt(int a) {
+        for (int direction = 0; direction < 2; direction++) {
+            boolean forward = direction == 0;
+            int positionA = position[a];
+            int b = tour[forward ? next(positionA) : previous(positionA)];
+            int ab = distances.distance(a, b);
+
+            for (int k = 0; k < neighbours.size(); k++) {
+                int c = neighbours.get(a, k);
+                int ac = distances.distance(a, c);
+                //neighbours are nearest first, so no later one can shorten the tour either
+                if (ac >= ab) {
+                    break;
+                }
+                int positionC = position[c];
+                int e = tour[forward ? next(positionC) : previous(positionC)];
+                if (c == b || e == a) {
+                    continue;
+                }
+                if (count()) {
+                    return false;
+                }
+                int delta = ac + distances.distance(b, e) - ab - distances.distance(c, e);
+                if (delta < 0) {
+                    //a b .. c e becomes a c .. b e, or the mirror image going backwards
+                    if (forward) {
+                        reverseShorter(position[b], positionC);
+                    } else {
+                        reverseShorter(positionA, position[e]);
+                    }
+                    cost += delta;
+                    push(b);
+                    push(c);
+                    push(e);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Try to move the segment of up to maxSegment cities starting at the given city
+     * next to a neighbour of one of its ends, in either orientation.
+     */
+    private boolean orOpt(int a) {
+        for (int length = 1; length <= maxSegment; length++) {
+            int start = position[a];
+            int end = (start + length - 1) % n;
+            int s1 = a;
+            int s2 = tour[end];
+            int p = tour[previous(start)];
+            int nx = tour[next(end)];
+            int removeGain = distances.distance(p, s1) + distances.distance(s2, nx) - distances.distance(p, nx);
+            if (removeGain <= 0) {
+                continue;
+            }
+
+            for (int side = 0; side < 2; side++) {
+                int joined = side == 0 ? s1 : s2;
+                int other = side == 0 ? s2 : s1;
+                for (int k = 0; k < neighbours.size(); k++) {
+                    int c = neighbours.get(joined, k);
+                    int joinedToC = distances.distance(joined, c);
+                    if (joinedToC >= removeGain) {
+                        break;
+                    }
+                    if (inSegment(position[c], start, length)) {
+                        continue;
+                    }
+                    //joined sits right after c: c joined .. other y
+                    int y = tour[next(position[c])];
+                    if (!inSegment(position[y], start, length)) {
+                        if (count()) {
+                            return false;
+                        }
+                        int delta = joinedToC + distances.distance(other, y) - distances.distance(c, y) - removeGain;
+                        if (delta < 0) {
+                            moveSegment(start, length, c, joined == s2);
+                            cost += delta;
+                            pushAll(p, nx, s1, s2, c, y);
+                            return true;
+                        }
+                    }
+                    //joined sits right before c: x other .. joined c
+                    int x = tour[previous(position[c])];
+                    if (!inSegment(position[x], start, length)) {
+                        if (count()) {
+                            return false;
+                        }
+                        int delta = joinedToC + distances.distance(x, other) - distances.distance(x, c) - removeGain;
+                        if (delta < 0) {
+                            moveSegment(start, length, x, joined == s1);
+                            cost += delta;
+                            pushAll(p, nx, s1, s2, x, c);
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Move tour[start .. start + length) so that it follows city after, reversed if asked.
+     * Done as a swap of adjacent blocks, around whichever side of the tour is shorter.
+     */
+    private void moveSegment(int start, int length, int after, boolean reversed) {
+        int afterPosition = position[after];
+        int segmentEnd = (start + length - 1) % n;
+        //cities strictly between the segment and the insertion point, going forwards and backwards
+        int forwardLength = (afterPosition - segmentEnd + n) % n;
+        int backwardLength = n - length - forwardLength;
+
+        int segmentStart;
+        if (forwardLength <= backwardLength) {
+            //[segment][forward block] becomes [forward block][segment]
+            reverseExact(start, length + forwardLength);
+            reverseExact(start, forwardLength);
+            reverseExact((start + forwardLength) % n, length);
+            segmentStart = (start + forwardLength) % n;
+        } else {
+            //[backward block][segment] becomes [segment][backward block]
+            int blockStart = (start - backwardLength + n) % n;
+            reverseExact(blockStart, backwardLength + length);
+            reverseExact(blockStart, length);
+            reverseExact((blockStart + length) % n, backwardLength);
+            segmentStart = blockStart;
+        }
+        if (reversed) {
+            reverseExact(segmentStart, length);
+        }
+    }
+
+    /**
+     * Reverse the cyclic range from..to, or the rest of the tour if that is shorter,
+     * which gives the same closed tour travelled the other way.
+     */
+    private void reverseShorter(int from, int to) {
+        int length = (to - from + n) % n + 1;
+        if (2 * length > n) {
+            reverseExact(next(to), n - length);
+        } else {
+            reverseExact(from, length);
+        }
+    }
+
+    /**
+     * Reverse exactly the cyclic range of length cities starting at from.
+     */
+    private void reverseExact(int from, int length) {
+        int i = from;
+        int j = (from + length - 1) % n;
+        for (int k = 0; k < length / 2; k++) {
+            int temp = tour[i];
+            tour[i] = tour[j];
+            tour[j] = temp;
+            position[tour[i]] = i;
+            position[tour[j]] = j;
+            i = next(i);
+            j = previous(j);
+        }
+    }
+
+    private boolean inSegment(int index, int start, int length) {
+        return (index - start + n) % n < length;
+    }
+
+    private int next(int index) {
+        return index == n - 1 ? 0 : index + 1;
+    }
+
+    private int previous(int index) {
+        return index == 0 ? n - 1 : index - 1;
+    }
+
+    /**
+     * Count one move evaluation.
+     * @return true if the budget has run out
+     */
+    private boolean count() {
+        evaluations++;
+        if (evaluations >= maxEvaluations
+                || (evaluations % clockInterval == 0 && System.nanoTime() > deadline)) {
+            outOfBudget = true;
+        }
+        return outOfBudget;
+    }
+
+    private void push(int city) {
+        if (!queued[city]) {
+            queued[city] = true;
+            queue[(head + queueSize) % n] = city;
+            queueSize++;
+        }
+    }
+
+    private void pushAll(int a, int b, int c, int d, int e, int f) {
+        push(a);
+        push(b);
+        push(c);
+        push(d);
+        push(e);
+        push(f);
+    }
+
+    private int poll() {
+        int city = queue[head];
+        head = next(head);
+        queueSize--;
+        queued[city] = false;
+        return city;
+    }
+}
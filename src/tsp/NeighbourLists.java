@@ -0,0 +1,53 @@
+package tsp;
+
+/**
+ * The k nearest cities of every city for one layout, used to steer mutations
+ * towards edges that are likely to appear in good tours.
+ *
+ * The lists are stored flat: the neighbours of city c, nearest first, are
+ * neighbours[c * k .. (c + 1) * k).
+ */
+public class NeighbourLists {
+
+    /**
+     * How many neighbours each city has.
+     */
+    private final int k;
+
+    private final int[] neighbours;
+
+    /**
+     * Constructor, finds the neighbours of every city through the layout's spatial index.
+     *
+     * @param distances The layout.
+     * @param k         How many neighbours to keep per city, capped at one less than the number of cities.
+     */
+    public NeighbourLists(DistanceMatrix distances, int k) {
+        int size = distances.size();
+        this.k = Math.max(0, Math.min(k, size - 1));
+        neighbours = new int[size * this.k];
+        if (this.k == 0) {
+            return;
+        }
+        SpatialGrid grid = distances.spatialGrid();
+        for (int city = 0; city < size; city++) {
+            grid.nearest(city, this.k, neighbours, city * this.k);
+        }
+    }
+
+    /**
+     * @return How many neighbours each city has.
+     */
+    public int size() {
+        return k;
+    }
+
+    /**
+     * @param city The city.
+     * @param i    Which neighbour, 0 being the nearest.
+     * @return The ith nearest city to the given city.
+     */
+    public int get(int city, int i) {
+        return neighbours[city * k + i];
+    }
+}
@@ -0,0 +1,151 @@
+package tsp;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Recomputes the cost of a whole population, fanning out across a fork-join
+ * pool when the population is large enough to be worth splitting.
+ *
+ * Chunks are sized by edges rather than by chromosomes, so a population of
+ * 100 tours over 50 cities stays on the calling thread while the same
+ * population over 10,000 cities is split across every worker.
+ */
+public class PopulationEvaluator {
+
+    /**
+     * Fewest edge lookups worth handing to another thread.
+     */
+    private static final int minEdgesPerChunk = 50000;
+
+    /**
+     * The pool to split work across, null when evaluation is sequential.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor.
+     *
+     * @param parallelism How many threads evaluate at once, 1 for purely sequential evaluation.
+     */
+    public PopulationEvaluator(int parallelism) {
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    /**
+     * @return Whether this evaluator ever leaves the calling thread.
+     */
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    /**
+     * Recompute the cost of every chromosome.
+     *
+     * @param chromosomes The population.
+     * @param distances   The distances between the cities for the current layout.
+     */
+    public void evaluate(Chromosome[] chromosomes, DistanceMatrix distances) {
+        int chunk = chunkSize(distances.size());
+        if (pool == null || chromosomes.length <= chunk) {
+            evaluate(chromosomes, 0, chromosomes.length, distances);
+        } else {
+            pool.invoke(new ChromosomeTask(chromosomes, 0, chromosomes.length, chunk, distances));
+        }
+    }
+
+    /**
+     * Recompute the cost of every slot in a pool.
+     *
+     * @param tours     The population.
+     * @param distances The distances between the cities for the current layout.
+     */
+    public void evaluate(TourPool tours, DistanceMatrix distances) {
+        int chunk = chunkSize(distances.size());
+        if (pool == null || tours.size() <= chunk) {
+            tours.evaluate(0, tours.size(), distances);
+        } else {
+            pool.invoke(new SlotTask(tours, 0, tours.size(), chunk, distances));
+        }
+    }
+
+    /**
+     * Stop the worker threads.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * How many tours of the given length make a chunk worth running on its own thread.
+     */
+    private static int chunkSize(int cityCount) {
+        return Math.max(1, minEdgesPerChunk / Math.max(1, cityCount));
+    }
+
+    private static void evaluate(Chromosome[] chromosomes, int from, int to, DistanceMatrix distances) {
+        for (int i = from; i < to; i++) {
+            chromosomes[i].calculateCost(distances);
+        }
+    }
+
+    private static class ChromosomeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Chromosome[] chromosomes;
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final DistanceMatrix distances;
+
+        ChromosomeTask(Chromosome[] chromosomes, int from, int to, int chunk, DistanceMatrix distances) {
+            this.chromosomes = chromosomes;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.distances = distances;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                evaluate(chromosomes, from, to, distances);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChromosomeTask(chromosomes, from, mid, chunk, distances),
+                    new ChromosomeTask(chromosomes, mid, to, chunk, distances));
+        }
+    }
+
+    private static class SlotTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final TourPool tours;
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final DistanceMatrix distances;
+
+        SlotTask(TourPool tours, int from, int to, int chunk, DistanceMatrix distances) {
+            this.tours = tours;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.distances = distances;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                tours.evaluate(from, to, distances);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SlotTask(tours, from, mid, chunk, distances),
+                    new SlotTask(tours, mid, to, chunk, distances));
+        }
+    }
+}
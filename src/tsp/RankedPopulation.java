@@ -0,0 +1,99 @@
+package tsp;
+
+/**
+ * Keeps an array of chromosomes ordered from cheapest to most expensive.
+ *
+ * The array is shared with the caller and sorted in place, so chromosomes[0]
+ * is always the best tour. Children are placed by binary search and the
+ * worst chromosome is evicted to make room for them.
+ */
+public class RankedPopulation {
+
+    private final Chromosome[] chromosomes;
+
+    /**
+     * Constructor, sorts the array by cost.
+     *
+     * @param chromosomes The population, which is reordered in place.
+     */
+    public RankedPopulation(Chromosome[] chromosomes) {
+        this.chromosomes = chromosomes;
+        resort();
+    }
+
+    /**
+     * Restore the ordering after costs have changed, e.g. when the cities move.
+     */
+    public void resort() {
+        Chromosome.sortChromosomes(chromosomes, chromosomes.length);
+    }
+
+    /**
+     * @return The cheapest chromosome.
+     */
+    public Chromosome best() {
+        return chromosomes[0];
+    }
+
+    /**
+     * @return The most expensive chromosome.
+     */
+    public Chromosome worst() {
+        return chromosomes[chromosomes.length - 1];
+    }
+
+    /**
+     * @param k The rank, 0 being the best.
+     * @return The kth cheapest chromosome.
+     */
+    public Chromosome get(int k) {
+        return chromosomes[k];
+    }
+
+    /**
+     * @return How many chromosomes are ranked.
+     */
+    public int size() {
+        return chromosomes.length;
+    }
+
+    /**
+     * @param cost A tour cost.
+     * @return How many chromosomes cost no more than the given cost.
+     */
+    public int rankOf(double cost) {
+        return upperBound(chromosomes, cost, chromosomes.length);
+    }
+
+    /**
+     * Evict the worst chromosome and insert the child at its rank. A child that
+     * beats the best chromosome becomes the new best.
+     *
+     * @param child The chromosome to insert.
+     * @return The rank the child was inserted at.
+     */
+    public int replaceWorst(Chromosome child) {
+        int last = chromosomes.length - 1;
+        int rank = upperBound(chromosomes, child.getCost(), last);
+        System.arraycopy(chromosomes, rank, chromosomes, rank + 1, last - rank);
+        chromosomes[rank] = child;
+        return rank;
+    }
+
+    /**
+     * Binary search over chromosomes[0..num) for the first chromosome costing more than cost.
+     */
+    static int upperBound(Chromosome[] chromosomes, double cost, int num) {
+        int low = 0;
+        int high = num;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (chromosomes[mid].getCost() <= cost) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
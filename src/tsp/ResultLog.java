@@ -0,0 +1,100 @@
+package tsp;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Appends lines to a results file from a background thread.
+ *
+ * The file is opened once and written through a buffer, so a run only pays
+ * for putting a line on a bounded queue. If the writer falls behind, callers
+ * block once the queue is full rather than letting it grow without limit.
+ */
+public class ResultLog {
+
+    /**
+     * Queued to tell the writer thread to flush and stop.
+     */
+    private static final String endOfLog = new String("end of log");
+
+    private final BlockingQueue<String> queue;
+    private final Thread writer;
+
+    /**
+     * Constructor, opens the file for appending and starts the writer thread.
+     *
+     * @param filename The file to append to.
+     * @param capacity How many lines may be waiting to be written.
+     * @throws IOException If the file cannot be opened.
+     */
+    public ResultLog(String filename, int capacity) throws IOException {
+        queue = new ArrayBlockingQueue<String>(capacity);
+        final BufferedWriter out = new BufferedWriter(new FileWriter(filename, true));
+        writer = new Thread(new Runnable() {
+            public void run() {
+                drain(out);
+            }
+        }, "results-writer");
+        writer.start();
+    }
+
+    /**
+     * Queue a line to be appended, waiting if the queue is full.
+     *
+     * @param content The line, without a trailing newline.
+     */
+    public void write(String content) {
+        try {
+            queue.put(content);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write out everything queued so far, close the file and stop the writer thread.
+     */
+    public void close() {
+        write(endOfLog);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain(BufferedWriter out) {
+        boolean failed = false;
+        try {
+            String line;
+            while ((line = queue.take()) != endOfLog) {
+                //keep draining after a failed write so that writers never block on a full queue
+                if (failed) {
+                    continue;
+                }
+                try {
+                    out.write(line);
+                    out.write('\n');
+                    //flush whenever the writer catches up, so a crash loses as little as possible
+                    if (queue.isEmpty()) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    failed = true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package tsp;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.Future;
+
+/**
+ * Everything that changes during a single run, so that independent runs can
+ * evolve side by side on different threads.
+ */
+public class RunContext {
+
+    /**
+     * Which run of the experiment this is, starting at 1.
+     */
+    final int runNumber;
+
+    /**
+     * The list of cities (with current movement applied).
+     */
+    City[] cities;
+
+    /**
+     * The list of cities that will be used to determine movement. Shared between runs, never modified.
+     */
+    final City[] originalCities;
+
+    /**
+     * The distances between the current cities, rebuilt whenever the cities move.
+     */
+    DistanceMatrix distances;
+
+    /**
+     * The list of chromosomes.
+     */
+    Chromosome[] chromosomes;
+
+    /**
+     * When set, the population is evolved in this flat gene buffer and chromosomes
+     * only holds a view of the best tour.
+     */
+    TourPool pool;
+
+    /**
+     * When set, the run evolves several populations and chromosomes only holds the overall best.
+     */
+    IslandModel islands;
+
+    /**
+     * Tracks the diversity of chromosomes, null unless diversity is tracked.
+     */
+    Diversity diversity;
+
+    /**
+     * The current generation.
+     */
+    int generation;
+
+    /**
+     * The lowest cost seen during this run.
+     */
+    double genMin;
+
+    /**
+     * The tour that reached genMin and the city positions it was costed on, kept so the
+     * run can hand back its best tour whenever it is stopped.
+     */
+    int[] bestTour;
+    City[] bestCities;
+
+    /**
+     * The generation genMin was last lowered in.
+     */
+    int improvedGeneration;
+
+    /**
+     * The limit that stopped the run, null while it is evolving.
+     */
+    Termination.Reason stopReason;
+
+    /**
+     * The best and mean cost at the end of each generation, buffered so they can be reported after the run.
+     */
+    double[] bestCosts = new double[128];
+    double[] meanCosts = new double[128];
+    int recordedGenerations;
+
+    /**
+     * Counters and timings of this run.
+     */
+    final RunMetrics metrics = new RunMetrics();
+
+    /**
+     * The random number generator for city movement and the run's population,
+     * which islands split their own generators from.
+     */
+    final SplittableRandom random;
+
+    /**
+     * The seed random was created with.
+     */
+    final long seed;
+
+    /**
+     * The checkpoint this run carries on from, null for a fresh run.
+     */
+    Checkpoint restored;
+
+    /**
+     * The checkpoint being written in the background, null before the first.
+     */
+    Future<?> pendingCheckpoint;
+
+    /**
+     * Output produced by this run, held back when runs are printed after they finish.
+     */
+    final StringBuilder output;
+
+    /**
+     * Constructor.
+     *
+     * @param runNumber      Which run of the experiment this is.
+     * @param originalCities The cities as loaded, before any movement.
+     * @param seed           Seed for this run's random number generator, the same seed replays the same run.
+     * @param buffered       Whether output is held back in output instead of printed.
+     */
+    RunContext(int runNumber, City[] originalCities, long seed, boolean buffered) {
+        this.runNumber = runNumber;
+        this.originalCities = originalCities;
+        this.cities = originalCities;
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        this.output = buffered ? new StringBuilder() : null;
+    }
+
+    /**
+     * Keep a copy of the current best tour as the best of the run.
+     */
+    void recordBest(double cost) {
+        int[] tour = chromosomes[0].cityList;
+        if (bestTour == null || bestTour.length != tour.length) {
+            bestTour = new int[tour.length];
+        }
+        System.arraycopy(tour, 0, bestTour, 0, tour.length);
+        bestCities = cities;
+        genMin = cost;
+        improvedGeneration = generation;
+    }
+
+    /**
+     * Record the best and mean cost at the end of a generation.
+     */
+    void recordGeneration(double cost, double meanCost) {
+        if (recordedGenerations == bestCosts.length) {
+            bestCosts = Arrays.copyOf(bestCosts, bestCosts.length * 2);
+            meanCosts = Arrays.copyOf(meanCosts, meanCosts.length * 2);
+        }
+        bestCosts[recordedGenerations] = cost;
+        meanCosts[recordedGenerations++] = meanCost;
+    }
+}
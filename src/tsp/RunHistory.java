@@ -0,0 +1,517 @@
+package tsp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An append-only binary store of finished runs, with a small index beside it.
+ *
+ * Each record holds a run's header (when it ran, its seeds, the options it ran
+ * with, its size and result) and the best and mean cost of every generation.
+ * The index file holds one fixed-size entry per record with the record's offset
+ * and the fields queries group and rank by, so questions such as the best genMin
+ * per configuration are answered from the index and only the winning records
+ * are read.
+ *
+ * Records are appended to the data file before their index entry. If the JVM
+ * dies in between, queries find the unindexed records by scanning the data file,
+ * and the next append rebuilds the missing entries and drops a record cut short.
+ * Queries never write, so reading a store that is being appended to is safe.
+ *
+ * Usage: java tsp.RunHistory [best|runs|series] [--history=history.bin]
+ */
+public class RunHistory {
+
+    /**
+     * One run as stored.
+     */
+    public static final class Record {
+        final long timestamp;
+        final String config;
+        final long experimentSeed;
+        final long runSeed;
+        final int runNumber;
+        final int cityCount;
+        final int populationSize;
+        final int generations;
+        final double genMin;
+        final Termination.Reason stopReason;
+
+        /**
+         * The best cost and the mean cost at the end of each recorded generation.
+         */
+        final int[] bestCosts;
+        final float[] meanCosts;
+
+        Record(long timestamp, String config, long experimentSeed, long runSeed, int runNumber, int cityCount,
+               int populationSize, int generations, double genMin, Termination.Reason stopReason,
+               int[] bestCosts, float[] meanCosts) {
+            this.timestamp = timestamp;
+            this.config = config;
+            this.experimentSeed = experimentSeed;
+            this.runSeed = runSeed;
+            this.runNumber = runNumber;
+            this.cityCount = cityCount;
+            this.populationSize = populationSize;
+            this.generations = generations;
+            this.genMin = genMin;
+            this.stopReason = stopReason;
+            this.bestCosts = bestCosts;
+            this.meanCosts = meanCosts;
+        }
+
+        /**
+         * Take the record of a run that has just finished.
+         *
+         * @param run            The run.
+         * @param timestamp      When the experiment started, in milliseconds since the epoch.
+         * @param config         The options the experiment ran with.
+         * @param experimentSeed The seed of the whole experiment.
+         * @param populationSize How many tours each population held.
+         * @return The record.
+         */
+        static Record of(RunContext run, long timestamp, String config, long experimentSeed, int populationSize) {
+            int[] best = new int[run.recordedGenerations];
+            float[] mean = new float[run.recordedGenerations];
+            for (int g = 0; g < best.length; g++) {
+                //tour costs are sums of integer distances
+                best[g] = (int) run.bestCosts[g];
+                mean[g] = (float) run.meanCosts[g];
+            }
+            return new Record(timestamp, config, experimentSeed, run.seed, run.runNumber, run.cities.length,
+                    populationSize, run.generation, run.genMin, run.stopReason, best, mean);
+        }
+    }
+
+    /**
+     * An index entry: where a record lives and the fields queries use.
+     */
+    private static final class Entry {
+        final long offset;
+        final int length;
+        final long timestamp;
+        final long configHash;
+        final double genMin;
+
+        Entry(long offset, int length, long timestamp, long configHash, double genMin) {
+            this.offset = offset;
+            this.length = length;
+            this.timestamp = timestamp;
+            this.configHash = configHash;
+            this.genMin = genMin;
+        }
+    }
+
+    private static final int magic = 0x54535052; //"TSPR"
+    private static final int version = 1;
+    private static final int entryBytes = 8 + 4 + 8 + 8 + 8;
+
+    /**
+     * The length prefix and magic number in front of every record.
+     */
+    private static final int recordPrefixBytes = 4 + 4;
+
+    private final File data;
+    private final File index;
+
+    /**
+     * Constructor, nothing is read until the store is used.
+     *
+     * @param filename The data file, the index is kept next to it with .idx appended.
+     */
+    public RunHistory(String filename) {
+        data = new File(filename);
+        index = new File(filename + ".idx");
+    }
+
+    /**
+     * Append a finished run to the store.
+     *
+     * @param record The run.
+     * @throws IOException If the store cannot be written.
+     */
+    public synchronized void append(Record record) throws IOException {
+        long end = repair();
+        ByteBuffer encoded = encode(record);
+        int length = encoded.remaining();
+        try (FileChannel channel = FileChannel.open(data.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.position(end);
+            while (encoded.hasRemaining()) {
+                channel.write(encoded);
+            }
+            channel.force(false);
+        }
+        appendEntries(Collections.singletonList(
+                new Entry(end, length, record.timestamp, hash(record.config), record.genMin)));
+    }
+
+    /**
+     * The best run of every configuration, read from the index and the winning records only.
+     *
+     * @return One record per configuration, in the order the configurations first ran.
+     * @throws IOException If the store cannot be read.
+     */
+    public synchronized List<Record> best() throws IOException {
+        Map<Long, Entry> best = new LinkedHashMap<Long, Entry>();
+        for (Entry entry : entries()) {
+            Entry current = best.get(entry.configHash);
+            if (current == null || entry.genMin < current.genMin) {
+                best.put(entry.configHash, entry);
+            }
+        }
+        List<Record> records = new ArrayList<Record>();
+        if (best.isEmpty()) {
+            return records;
+        }
+        try (FileChannel channel = FileChannel.open(data.toPath(), StandardOpenOption.READ)) {
+            for (Entry entry : best.values()) {
+                records.add(read(channel, entry));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @return How many runs of each configuration are stored, by configuration hash.
+     * @throws IOException If the store cannot be read.
+     */
+    public synchronized Map<Long, Integer> counts() throws IOException {
+        Map<Long, Integer> counts = new LinkedHashMap<Long, Integer>();
+        for (Entry entry : entries()) {
+            Integer count = counts.get(entry.configHash);
+            counts.put(entry.configHash, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    /**
+     * @return Every stored run, oldest first.
+     * @throws IOException If the store cannot be read.
+     */
+    public synchronized List<Record> all() throws IOException {
+        List<Entry> entries = entries();
+        List<Record> records = new ArrayList<Record>();
+        if (entries.isEmpty()) {
+            return records;
+        }
+        try (FileChannel channel = FileChannel.open(data.toPath(), StandardOpenOption.READ)) {
+            for (Entry entry : entries) {
+                records.add(read(channel, entry));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Write one CSV line per run, without the generation series.
+     *
+     * @param out Where to write.
+     * @throws IOException If the store cannot be read.
+     */
+    public void exportRuns(PrintStream out) throws IOException {
+        out.println("time,config,experiment_seed,run_seed,run,cities,population,generations,gen_min,stop_reason");
+        for (Record record : all()) {
+            out.println(runColumns(record));
+        }
+    }
+
+    /**
+     * Write one CSV line per generation of every run.
+     *
+     * @param out Where to write.
+     * @throws IOException If the store cannot be read.
+     */
+    public void exportSeries(PrintStream out) throws IOException {
+        out.println("time,config,run,generation,best_cost,mean_cost");
+        for (Record record : all()) {
+            String prefix = time(record.timestamp) + "," + quote(record.config) + "," + record.runNumber + ",";
+            for (int g = 0; g < record.bestCosts.length; g++) {
+                out.println(prefix + (g + 1) + "," + record.bestCosts[g] + ","
+                        + String.format(Locale.ROOT, "%.1f", record.meanCosts[g]));
+            }
+        }
+    }
+
+    /**
+     * The entries of every complete record, without changing either file. Entries for records the
+     * data file lost are left out and records the index is missing are found by scanning, as
+     * repair does, but nothing is written until the next append repairs the store.
+     */
+    private List<Entry> entries() throws IOException {
+        if (!data.exists()) {
+            return new ArrayList<Entry>();
+        }
+        List<Entry> entries = indexedEntries();
+        long end = end(entries, 0);
+        if (end < data.length()) {
+            try (FileChannel channel = FileChannel.open(data.toPath(), StandardOpenOption.READ)) {
+                entries.addAll(unindexed(channel, end));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Make the index cover exactly the complete records in the data file: drop index entries for
+     * records the data file lost, index records the index is missing, and drop a record that was
+     * cut short. Only an append repairs, so reading the store never changes it.
+     *
+     * @return Where the next record goes.
+     */
+    private long repair() throws IOException {
+        if (!data.exists()) {
+            if (index.exists() && !index.delete()) {
+                throw new IOException("Could not remove " + index + " without " + data);
+            }
+            return 0;
+        }
+        List<Entry> entries = indexedEntries();
+        //also drops a trailing partial entry
+        if (index.exists() && index.length() != (long) entries.size() * entryBytes) {
+            truncate(index, (long) entries.size() * entryBytes);
+        }
+        long end = end(entries, 0);
+        if (end == data.length()) {
+            return end;
+        }
+
+        List<Entry> missing;
+        try (FileChannel channel = FileChannel.open(data.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            missing = unindexed(channel, end);
+            end = end(missing, end);
+            //whatever is left is a record that was being appended when the JVM died
+            channel.truncate(end);
+        }
+        appendEntries(missing);
+        return end;
+    }
+
+    /**
+     * @return The index entries whose records the data file holds in full.
+     */
+    private List<Entry> indexedEntries() throws IOException {
+        List<Entry> entries = readEntries();
+        //records are appended in order, so the lost ones are at the end of the index
+        long length = data.length();
+        int kept = entries.size();
+        while (kept > 0 && entries.get(kept - 1).offset + entries.get(kept - 1).length > length) {
+            kept--;
+        }
+        return new ArrayList<Entry>(entries.subList(0, kept));
+    }
+
+    /**
+     * Scan the data file from end for complete records the index does not list.
+     */
+    private List<Entry> unindexed(FileChannel channel, long end) throws IOException {
+        List<Entry> missing = new ArrayList<Entry>();
+        ByteBuffer prefix = ByteBuffer.allocate(recordPrefixBytes);
+        while (end + recordPrefixBytes <= channel.size()) {
+            prefix.clear();
+            channel.read(prefix, end);
+            int length = prefix.getInt(0);
+            if (prefix.getInt(4) != magic || length < recordPrefixBytes || end + length > channel.size()) {
+                break;
+            }
+            Entry entry = new Entry(end, length, 0, 0, 0);
+            Record record = read(channel, entry);
+            missing.add(new Entry(end, length, record.timestamp, hash(record.config), record.genMin));
+            end += length;
+        }
+        return missing;
+    }
+
+    /**
+     * @return Where the last of the entries ends, or start if there are none.
+     */
+    private static long end(List<Entry> entries, long start) {
+        if (entries.isEmpty()) {
+            return start;
+        }
+        Entry last = entries.get(entries.size() - 1);
+        return last.offset + last.length;
+    }
+
+    private List<Entry> readEntries() throws IOException {
+        List<Entry> entries = new ArrayList<Entry>();
+        if (!index.exists()) {
+            return entries;
+        }
+        try (FileChannel channel = FileChannel.open(index.toPath(), StandardOpenOption.READ)) {
+            //a trailing partial entry is ignored, and dropped by the next repair
+            int count = (int) (channel.size() / entryBytes);
+            ByteBuffer buffer = ByteBuffer.allocate(count * entryBytes);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                //keep reading
+            }
+            buffer.flip();
+            for (int i = 0; i < count; i++) {
+                entries.add(new Entry(buffer.getLong(), buffer.getInt(), buffer.getLong(), buffer.getLong(), buffer.getDouble()));
+            }
+        }
+        return entries;
+    }
+
+    private void appendEntries(List<Entry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(entries.size() * entryBytes);
+        for (Entry entry : entries) {
+            buffer.putLong(entry.offset).putInt(entry.length).putLong(entry.timestamp)
+                    .putLong(entry.configHash).putDouble(entry.genMin);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(index.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static void truncate(File file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static ByteBuffer encode(Record record) {
+        byte[] config = record.config.getBytes(StandardCharsets.UTF_8);
+        int generations = record.bestCosts.length;
+        int length = recordPrefixBytes + 4 + 8 + 4 + config.length + 8 + 8 + 4 + 4 + 4 + 4 + 8 + 1 + 4 + generations * (4 + 4);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(length).putInt(magic).putInt(version);
+        buffer.putLong(record.timestamp);
+        buffer.putInt(config.length).put(config);
+        buffer.putLong(record.experimentSeed).putLong(record.runSeed);
+        buffer.putInt(record.runNumber).putInt(record.cityCount).putInt(record.populationSize).putInt(record.generations);
+        buffer.putDouble(record.genMin);
+        buffer.put((byte) (record.stopReason == null ? -1 : record.stopReason.ordinal()));
+        buffer.putInt(generations);
+        for (int best : record.bestCosts) {
+            buffer.putInt(best);
+        }
+        for (float mean : record.meanCosts) {
+            buffer.putFloat(mean);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static Record read(FileChannel channel, Entry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+                throw new IOException("Run record at " + entry.offset + " ended early");
+            }
+        }
+        buffer.flip();
+        try {
+            buffer.getInt();
+            if (buffer.getInt() != magic || buffer.getInt() != version) {
+                throw new IOException("No run record at " + entry.offset);
+            }
+            long timestamp = buffer.getLong();
+            byte[] config = new byte[buffer.getInt()];
+            buffer.get(config);
+            long experimentSeed = buffer.getLong();
+            long runSeed = buffer.getLong();
+            int runNumber = buffer.getInt();
+            int cityCount = buffer.getInt();
+            int populationSize = buffer.getInt();
+            int generations = buffer.getInt();
+            double genMin = buffer.getDouble();
+            byte reason = buffer.get();
+            int[] best = new int[buffer.getInt()];
+            for (int g = 0; g < best.length; g++) {
+                best[g] = buffer.getInt();
+            }
+            float[] mean = new float[best.length];
+            for (int g = 0; g < mean.length; g++) {
+                mean[g] = buffer.getFloat();
+            }
+            return new Record(timestamp, new String(config, StandardCharsets.UTF_8), experimentSeed, runSeed, runNumber,
+                    cityCount, populationSize, generations, genMin,
+                    reason < 0 ? null : Termination.Reason.values()[reason], best, mean);
+        } catch (RuntimeException e) {
+            throw new IOException("Run record at " + entry.offset + " is damaged", e);
+        }
+    }
+
+    /**
+     * 64 bit FNV-1a, so configurations can be grouped without reading their text.
+     */
+    private static long hash(String config) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : config.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static String runColumns(Record record) {
+        return time(record.timestamp) + "," + quote(record.config) + "," + record.experimentSeed + "," + record.runSeed
+                + "," + record.runNumber + "," + record.cityCount + "," + record.populationSize + ","
+                + record.generations + "," + String.format(Locale.ROOT, "%.1f", record.genMin) + ","
+                + (record.stopReason == null ? "" : record.stopReason.toString().toLowerCase());
+    }
+
+    private static String time(long timestamp) {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(timestamp));
+    }
+
+    private static String quote(String text) {
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+
+    public static void main(String[] args) {
+        String command = "best";
+        String filename = "history.bin";
+        for (String arg : args) {
+            if (arg.startsWith("--history=")) {
+                filename = arg.substring("--history=".length());
+            } else {
+                command = arg;
+            }
+        }
+        RunHistory history = new RunHistory(filename);
+        try {
+            switch (command) {
+                case "best":
+                    Map<Long, Integer> counts = history.counts();
+                    System.out.println("config,runs,best_gen_min,experiment_seed,run,time");
+                    for (Record record : history.best()) {
+                        System.out.println(quote(record.config) + "," + counts.get(hash(record.config)) + ","
+                                + String.format(Locale.ROOT, "%.1f", record.genMin) + "," + record.experimentSeed
+                                + "," + record.runNumber + "," + time(record.timestamp));
+                    }
+                    break;
+                case "runs":
+                    history.exportRuns(System.out);
+                    break;
+                case "series":
+                    history.exportSeries(System.out);
+                    break;
+                default:
+                    System.out.println("Usage: java tsp.RunHistory [best|runs|series] [--history=history.bin]");
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read " + filename + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package tsp;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for one run.
+ *
+ * Every counter is a LongAdder, so islands and evaluation workers can record
+ * into the same run without contending on a lock. Latencies go into histograms
+ * with one bucket per power of two nanoseconds, which is enough to spot a
+ * regression in the median or the tail at the cost of one increment per sample.
+ *
+ * Timers that are recorded from several threads at once (evaluation and local
+ * search on islands) add up the time of each thread, so they can exceed the
+ * wall clock time of the run.
+ *
+ * Allocation is only read for the thread that runs the generations. Island
+ * workers and the shared evaluation pool allocate on their own threads and are
+ * not counted, so the figure is a lower bound when either is in use.
+ */
+public class RunMetrics implements RunMetricsMBean {
+
+    /**
+     * The phases of a generation that are timed.
+     */
+    public enum Timer {
+        GENERATION, EVALUATION, SORT, LOCAL_SEARCH, MOVE, GUI
+    }
+
+    /**
+     * Recorded into by callers that are not part of a run, such as the benchmarks.
+     */
+    static final RunMetrics unrecorded = new RunMetrics();
+
+    private static final int buckets = 64;
+
+    private final LongAdder[] timerNanos = new LongAdder[Timer.values().length];
+    private final AtomicLongArray[] histograms = new AtomicLongArray[Timer.values().length];
+
+    private final LongAdder generations = new LongAdder();
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder inversionsProposed = new LongAdder();
+    private final LongAdder inversionsAccepted = new LongAdder();
+    private final LongAdder crossoversProposed = new LongAdder();
+    private final LongAdder crossoversAccepted = new LongAdder();
+    private final LongAdder localSearchMoves = new LongAdder();
+    private final LongAdder runThreadAllocatedBytes = new LongAdder();
+    private final LongAdder duplicatesSkipped = new LongAdder();
+    private final LongAdder injectedTours = new LongAdder();
+
+    /**
+     * The edge entropy of the last population surveyed, as raw double bits.
+     */
+    private volatile long edgeEntropyBits = Double.doubleToLongBits(0);
+
+    /**
+     * When the run started and stopped, 0 while not yet known.
+     */
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    private ObjectName name;
+
+    /**
+     * Constructor, every counter starts at zero.
+     */
+    public RunMetrics() {
+        for (int t = 0; t < timerNanos.length; t++) {
+            timerNanos[t] = new LongAdder();
+            histograms[t] = new AtomicLongArray(buckets);
+        }
+    }
+
+    /**
+     * Mark the start of the run.
+     */
+    public void begin() {
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Mark the end of the run.
+     */
+    public void end() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * @return The current time, to be passed to stop.
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record how long a phase took.
+     *
+     * @param timer The phase.
+     * @param start What start returned when the phase began.
+     */
+    public void stop(Timer timer, long start) {
+        long nanos = System.nanoTime() - start;
+        timerNanos[timer.ordinal()].add(nanos);
+        histograms[timer.ordinal()].incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(1, nanos)));
+    }
+
+    /**
+     * @param tours How many tours were costed from scratch.
+     */
+    public void countEvaluations(long tours) {
+        evaluations.add(tours);
+    }
+
+    /**
+     * @param proposed How many inversions were proposed.
+     * @param accepted How many of them produced a child.
+     */
+    public void countInversions(long proposed, long accepted) {
+        inversionsProposed.add(proposed);
+        inversionsAccepted.add(accepted);
+    }
+
+    /**
+     * @param proposed How many children were recombined.
+     * @param accepted How many of them replaced a member of the population.
+     */
+    public void countCrossovers(long proposed, long accepted) {
+        crossoversProposed.add(proposed);
+        crossoversAccepted.add(accepted);
+    }
+
+    /**
+     * @param moves How many moves local search evaluated.
+     */
+    public void countLocalSearchMoves(long moves) {
+        localSearchMoves.add(moves);
+    }
+
+    /**
+     * @param skipped  How many children were dropped because the population already held their tour.
+     * @param injected How many tours were replaced by fresh ones to restore diversity.
+     * @param entropy  The edge entropy the population was surveyed at.
+     */
+    public void countDiversity(long skipped, long injected, double entropy) {
+        duplicatesSkipped.add(skipped);
+        injectedTours.add(injected);
+        edgeEntropyBits = Double.doubleToLongBits(entropy);
+    }
+
+    /**
+     * Count a finished generation.
+     *
+     * @param bytes How many bytes the run's thread allocated during it, negative if unknown.
+     */
+    public void countGeneration(long bytes) {
+        generations.increment();
+        if (bytes > 0) {
+            runThreadAllocatedBytes.add(bytes);
+        }
+    }
+
+    /**
+     * @return How many bytes the current thread has allocated so far, or -1 if the JVM cannot tell.
+     */
+    public static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Expose the counters through the platform MBean server while the run is in progress.
+     *
+     * @param runNumber Which run of the experiment this is.
+     */
+    public void register(int runNumber) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            name = new ObjectName("TSP:type=RunMetrics,run=" + runNumber);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            //the run does not depend on being observable
+            name = null;
+        }
+    }
+
+    /**
+     * Remove the counters from the platform MBean server.
+     */
+    public void unregister() {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            //already gone
+        }
+        name = null;
+    }
+
+    /**
+     * @return The column names matching csvRow.
+     */
+    public static String csvHeader() {
+        return "time,run,cities,population,generations,best_cost,wall_ms,generation_ms,evaluation_ms,sort_ms,"
+                + "local_search_ms,move_ms,gui_ms,evaluations,evaluations_per_sec,inversions_proposed,"
+                + "inversions_accepted,acceptance_rate,run_thread_allocated_bytes_per_generation,generation_p50_us,generation_p99_us,"
+                + "crossovers_proposed,crossovers_accepted,local_search_moves,duplicates_skipped,injected_tours,edge_entropy";
+    }
+
+    /**
+     * @return A summary of the run as one CSV line, without a trailing newline.
+     */
+    public String csvRow(String time, int runNumber, int cities, int population, double bestCost) {
+        return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%.1f,%d,%d,%.4f,%d,%.1f,%.1f,%d,%d,%d,%d,%d,%.4f",
+                time, runNumber, cities, population, getGenerations(), bestCost, wallNanos() / 1e6,
+                getGenerationMillis(), getEvaluationMillis(), getSortMillis(), getLocalSearchMillis(),
+                getMoveMillis(), getGuiMillis(), getEvaluations(), getEvaluationsPerSecond(),
+                getInversionsProposed(), getInversionsAccepted(), getAcceptanceRate(),
+                getRunThreadAllocatedBytesPerGeneration(), getGenerationP50Micros(), getGenerationP99Micros(),
+                getCrossoversProposed(), getCrossoversAccepted(), getLocalSearchMoves(), getDuplicatesSkipped(),
+                getInjectedTours(), getEdgeEntropy());
+    }
+
+    public long getGenerations() {
+        return generations.sum();
+    }
+
+    public long getEvaluations() {
+        return evaluations.sum();
+    }
+
+    /**
+     * @return How many tours were costed, in full or as the change of a proposed move, including local search moves.
+     */
+    long toursCosted() {
+        return getEvaluations() + getInversionsProposed() + getCrossoversProposed() + getLocalSearchMoves();
+    }
+
+    public double getEvaluationsPerSecond() {
+        long nanos = wallNanos();
+        return nanos == 0 ? 0 : getEvaluations() * 1e9 / nanos;
+    }
+
+    public long getInversionsProposed() {
+        return inversionsProposed.sum();
+    }
+
+    public long getInversionsAccepted() {
+        return inversionsAccepted.sum();
+    }
+
+    public double getAcceptanceRate() {
+        long proposed = getInversionsProposed();
+        return proposed == 0 ? 0 : (double) getInversionsAccepted() / proposed;
+    }
+
+    public long getCrossoversProposed() {
+        return crossoversProposed.sum();
+    }
+
+    public long getCrossoversAccepted() {
+        return crossoversAccepted.sum();
+    }
+
+    public long getLocalSearchMoves() {
+        return localSearchMoves.sum();
+    }
+
+    public long getDuplicatesSkipped() {
+        return duplicatesSkipped.sum();
+    }
+
+    public long getInjectedTours() {
+        return injectedTours.sum();
+    }
+
+    public double getEdgeEntropy() {
+        return Double.longBitsToDouble(edgeEntropyBits);
+    }
+
+    public double getGenerationMillis() {
+        return millis(Timer.GENERATION);
+    }
+
+    public double getEvaluationMillis() {
+        return millis(Timer.EVALUATION);
+    }
+
+    public double getSortMillis() {
+        return millis(Timer.SORT);
+    }
+
+    public double getLocalSearchMillis() {
+        return millis(Timer.LOCAL_SEARCH);
+    }
+
+    public double getMoveMillis() {
+        return millis(Timer.MOVE);
+    }
+
+    public double getGuiMillis() {
+        return millis(Timer.GUI);
+    }
+
+    public double getGenerationP50Micros() {
+        return percentile(Timer.GENERATION, 0.5) / 1e3;
+    }
+
+    public double getGenerationP99Micros() {
+        return percentile(Timer.GENERATION, 0.99) / 1e3;
+    }
+
+    public long getRunThreadAllocatedBytesPerGeneration() {
+        long count = getGenerations();
+        return count == 0 ? 0 : runThreadAllocatedBytes.sum() / count;
+    }
+
+    private double millis(Timer timer) {
+        return timerNanos[timer.ordinal()].sum() / 1e6;
+    }
+
+    /**
+     * The run time so far, or of the whole run once it has ended.
+     */
+    private long wallNanos() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        return (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+    }
+
+    /**
+     * The upper edge of the bucket holding the given fraction of samples, in nanoseconds.
+     */
+    private double percentile(Timer timer, double fraction) {
+        AtomicLongArray histogram = histograms[timer.ordinal()];
+        long total = 0;
+        for (int b = 0; b < buckets; b++) {
+            total += histogram.get(b);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long seen = 0;
+        for (int b = 0; b < buckets; b++) {
+            seen += histogram.get(b);
+            if (seen >= Math.ceil(total * fraction)) {
+                return Math.pow(2, b + 1);
+            }
+        }
+        return Math.pow(2, buckets);
+    }
+}
@@ -0,0 +1,49 @@
+package tsp;
+
+/**
+ * The live counters of one run, as seen through JMX.
+ */
+public interface RunMetricsMBean {
+
+    long getGenerations();
+
+    long getEvaluations();
+
+    double getEvaluationsPerSecond();
+
+    long getInversionsProposed();
+
+    long getInversionsAccepted();
+
+    double getAcceptanceRate();
+
+    long getCrossoversProposed();
+
+    long getCrossoversAccepted();
+
+    long getLocalSearchMoves();
+
+    long getDuplicatesSkipped();
+
+    long getInjectedTours();
+
+    double getEdgeEntropy();
+
+    double getGenerationMillis();
+
+    double getEvaluationMillis();
+
+    double getSortMillis();
+
+    double getLocalSearchMillis();
+
+    double getMoveMillis();
+
+    double getGuiMillis();
+
+    double getGenerationP50Micros();
+
+    double getGenerationP99Micros();
+
+    long getRunThreadAllocatedBytesPerGeneration();
+}
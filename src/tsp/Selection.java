@@ -0,0 +1,33 @@
+package tsp;
+
+import java.util.SplittableRandom;
+
+/**
+ * How parents are drawn from the fittest part of a population that is sorted by cost.
+ * Both schemes work on ranks alone, so choosing a parent never looks at a cost.
+ */
+public enum Selection {
+    /** The best ranked of tournamentSize uniformly drawn members. */
+    TOURNAMENT,
+    /** Linear ranking: the chance of being drawn falls in a straight line from the best rank to zero at the last. */
+    RANK;
+
+    /**
+     * @param poolSize       How many of the best ranked members may be drawn.
+     * @param tournamentSize How many members each tournament draws.
+     * @param random         Where the draws come from.
+     * @return The rank of the chosen parent, in [0, poolSize).
+     */
+    public int pick(int poolSize, int tournamentSize, SplittableRandom random) {
+        if (this == TOURNAMENT) {
+            int best = random.nextInt(poolSize);
+            for (int i = 1; i < tournamentSize; i++) {
+                best = Math.min(best, random.nextInt(poolSize));
+            }
+            return best;
+        }
+        //inverse of the cumulative distribution of a density falling linearly to zero
+        int rank = (int) (poolSize * (1 - Math.sqrt(random.nextDouble())));
+        return Math.min(rank, poolSize - 1);
+    }
+}
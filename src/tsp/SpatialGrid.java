@@ -0,0 +1,239 @@
+package tsp;
+
+/**
+ * A uniform grid over the cities of one layout, used to find the nearest city
+ * that has not been visited yet without scanning every city.
+ *
+ * The grid itself is immutable and shared by every tour built on the layout;
+ * each tour being built takes its own Search, which tracks the visited cities.
+ */
+public class SpatialGrid {
+
+    /**
+     * Roughly how many cities share a cell.
+     */
+    private static final int citiesPerCell = 2;
+
+    private final DistanceMatrix distances;
+
+    /**
+     * The grid origin, cell size and dimensions.
+     */
+    private final int minX;
+    private final int minY;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+
+    /**
+     * The cities of cell c are cellCities[cellStart[c] .. cellStart[c + 1]).
+     */
+    private final int[] cellStart;
+    private final int[] cellCities;
+
+    /**
+     * Which cell each city is in.
+     */
+    private final int[] cityCell;
+
+    /**
+     * Constructor, buckets every city of the layout into its cell.
+     *
+     * @param distances The layout to index.
+     */
+    public SpatialGrid(DistanceMatrix distances) {
+        this.distances = distances;
+        int size = distances.size();
+
+        int minx = Integer.MAX_VALUE, miny = Integer.MAX_VALUE;
+        int maxx = Integer.MIN_VALUE, maxy = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            minx = Math.min(minx, distances.getx(i));
+            miny = Math.min(miny, distances.gety(i));
+            maxx = Math.max(maxx, distances.getx(i));
+            maxy = Math.max(maxy, distances.gety(i));
+        }
+        minX = minx;
+        minY = miny;
+        long area = (long) (maxx - minx + 1) * (maxy - miny + 1);
+        cellSize = Math.max(1, (int) Math.ceil(Math.sqrt((double) area * citiesPerCell / Math.max(1, size))));
+        columns = (maxx - minx) / cellSize + 1;
+        rows = (maxy - miny) / cellSize + 1;
+
+        cityCell = new int[size];
+        cellStart = new int[columns * rows + 1];
+        for (int i = 0; i < size; i++) {
+            int column = (distances.getx(i) - minX) / cellSize;
+            int row = (distances.gety(i) - minY) / cellSize;
+            cityCell[i] = row * columns + column;
+            cellStart[cityCell[i] + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellCities = new int[size];
+        int[] filled = new int[columns * rows];
+        for (int i = 0; i < size; i++) {
+            int cell = cityCell[i];
+            cellCities[cellStart[cell] + filled[cell]++] = i;
+        }
+    }
+
+    /**
+     * Find the k cities closest to a given city, nearest first.
+     *
+     * @param city   The city to search from, never included in the result.
+     * @param k      How many neighbours to find, at most one less than the number of cities.
+     * @param out    Receives the neighbours.
+     * @param offset Where in out the first neighbour is written.
+     */
+    public void nearest(int city, int k, int[] out, int offset) {
+        int[] found = new int[k];
+        int[] foundDistance = new int[k];
+        int count = 0;
+        int column = cityCell[city] % columns;
+        int row = cityCell[city] / columns;
+        int maxRing = Math.max(columns, rows);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            //cells in this ring or beyond are separated from ours by at least ring - 1 whole cells
+            if (count == k && (long) (ring - 1) * cellSize > foundDistance[k - 1]) {
+                break;
+            }
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                boolean edgeRow = r == row - ring || r == row + ring;
+                int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+                for (int c = column - ring; c <= column + ring; c += step) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    int cell = r * columns + c;
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        int candidate = cellCities[i];
+                        if (candidate == city) {
+                            continue;
+                        }
+                        int distance = distances.distance(city, candidate);
+                        if (count == k && distance >= foundDistance[k - 1]) {
+                            continue;
+                        }
+                        //insertion into the sorted list of the best k so far
+                        int at = count == k ? k - 1 : count++;
+                        while (at > 0 && foundDistance[at - 1] > distance) {
+                            found[at] = found[at - 1];
+                            foundDistance[at] = foundDistance[at - 1];
+                            at--;
+                        }
+                        found[at] = candidate;
+                        foundDistance[at] = distance;
+                    }
+                }
+            }
+        }
+        System.arraycopy(found, 0, out, offset, count);
+    }
+
+    /**
+     * @return A new search in which every city is still unvisited.
+     */
+    public Search search() {
+        return new Search();
+    }
+
+    /**
+     * Nearest unvisited city queries for building a single tour.
+     */
+    public class Search {
+
+        /**
+         * The unvisited cities of cell c are cities[cellStart[c] .. cellStart[c] + remaining[c]).
+         */
+        private final int[] cities = cellCities.clone();
+        private final int[] remaining = new int[columns * rows];
+
+        /**
+         * Where each city currently sits in cities.
+         */
+        private final int[] slot = new int[cellCities.length];
+
+        private int unvisited = cellCities.length;
+
+        private Search() {
+            for (int c = 0; c < remaining.length; c++) {
+                remaining[c] = cellStart[c + 1] - cellStart[c];
+            }
+            for (int i = 0; i < cities.length; i++) {
+                slot[cities[i]] = i;
+            }
+        }
+
+        /**
+         * Mark a city as visited, so it is no longer returned by nearest.
+         *
+         * @param city The city to remove.
+         */
+        public void remove(int city) {
+            int cell = cityCell[city];
+            int last = cellStart[cell] + remaining[cell] - 1;
+            int at = slot[city];
+            int moved = cities[last];
+            cities[at] = moved;
+            slot[moved] = at;
+            cities[last] = city;
+            slot[city] = last;
+            remaining[cell]--;
+            unvisited--;
+        }
+
+        /**
+         * Find the unvisited city closest to a given city, searching outwards ring by ring.
+         *
+         * @param city The city to search from.
+         * @return The nearest unvisited city, or -1 if every city has been visited.
+         */
+        public int nearest(int city) {
+            if (unvisited == 0) {
+                return -1;
+            }
+            int column = cityCell[city] % columns;
+            int row = cityCell[city] / columns;
+            int best = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            int maxRing = Math.max(columns, rows);
+
+            for (int ring = 0; ring <= maxRing; ring++) {
+                //cells in this ring or beyond are separated from ours by at least ring - 1 whole cells
+                if (best >= 0 && (long) (ring - 1) * cellSize > bestDistance) {
+                    break;
+                }
+                for (int r = row - ring; r <= row + ring; r++) {
+                    if (r < 0 || r >= rows) {
+                        continue;
+                    }
+                    boolean edgeRow = r == row - ring || r == row + ring;
+                    //rows in the middle of the ring only have cells at its left and right edges
+                    int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+                    for (int c = column - ring; c <= column + ring; c += step) {
+                        if (c < 0 || c >= columns) {
+                            continue;
+                        }
+                        int cell = r * columns + c;
+                        int end = cellStart[cell] + remaining[cell];
+                        for (int i = cellStart[cell]; i < end; i++) {
+                            int candidate = cities[i];
+                            int distance = distances.distance(city, candidate);
+                            if (distance < bestDistance || (distance == bestDistance && candidate < best)) {
+                                best = candidate;
+                                bestDistance = distance;
+                            }
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,1193 @@
+package tsp;
+
+import java.awt.*;
+import java.io.*;
+import java.text.*;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.SplittableRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.*;
+
+public class TSP {
+
+    /**
+     * How much is printed while runs are evolving.
+     */
+    /*WRITTEN*/enum Verbosity {
+        /** Only the statistics at the end of the experiment. */
+        QUIET,
+        /** Run headers and final statistics, no per generation lines. */
+        SUMMARY,
+        /** Every sampleInterval'th generation. */
+        SAMPLED,
+        /** Every generation. */
+        ALL
+    }
+
+	private static final int cityShiftAmount = 60; //DO NOT CHANGE THIS.
+	
+    /**
+     * How many cities to use.
+     */
+    /*GIVEN*/protected static int cityCount;
+
+    /**
+     * How many chromosomes to use.
+     */
+    /*GIVEN*/protected static int populationSize = 100; //DO NOT CHANGE THIS.
+
+    /**
+     * The part of the population eligable for mating.
+     */
+    /*GIVEN*/protected static int matingPopulationSize;
+
+    /**
+     * The part of the population selected for mating.
+     */
+    /*GIVEN*/protected static int selectedParents;
+
+    /**
+     * The recombination applied to selectedParents parents drawn from the best matingPopulationSize
+     * each generation, null for mutation only, and how the parents are drawn.
+     */
+    /*WRITTEN*/private static Crossover.Operator crossover;
+    /*WRITTEN*/private static Selection selection = Selection.TOURNAMENT;
+    /*WRITTEN*/private static int tournamentSize = 2;
+
+    /**
+     * How the distance matrix is stored, null to pick by city count.
+     */
+    /*WRITTEN*/protected static DistanceMatrix.Mode distanceMode;
+
+    /**
+     * Whether whole tours are costed by TourLengthKernel, null to leave it to the distance matrix.
+     */
+    /*WRITTEN*/private static Boolean blockedKernel;
+
+    /**
+     * Whether runs use a TourPool instead of Chromosome objects.
+     */
+    /*WRITTEN*/private static boolean usePool;
+
+    /**
+     * When set, the pool stores cities as chars, halving its memory, if there are few enough cities.
+     */
+    /*WRITTEN*/private static boolean compact;
+
+    /**
+     * When set, costs are kept current across city movement, so populations are not re-evaluated
+     * every generation. MoveCities moves most cities, so each move re-costs every tour once; only
+     * a sparse move is carried across by correcting the edges of moved cities.
+     */
+    /*WRITTEN*/private static boolean incremental;
+
+    /**
+     * How many runs may evolve at the same time. Runs are sequential when this is 1.
+     */
+    /*WRITTEN*/private static int threads = 1;
+
+    /**
+     * How many populations each run evolves. A single population is evolved directly when this is 1.
+     */
+    /*WRITTEN*/private static int islandCount = 1;
+
+    /**
+     * How much is printed while runs are evolving, and how often when sampled.
+     */
+    /*WRITTEN*/private static Verbosity verbosity;
+    /*WRITTEN*/private static int sampleInterval = 10;
+
+    /**
+     * Whether the experiment runs headless with buffered console output.
+     */
+    /*WRITTEN*/private static boolean batch;
+
+    /**
+     * The file the cities are loaded from, either "x, y" lines or TSPLIB.
+     */
+    /*WRITTEN*/private static String cityFile = "CityList.txt";
+
+    /**
+     * Appends to results.out from a background thread while main is running.
+     */
+    /*WRITTEN*/private static ResultLog resultLog;
+
+    /**
+     * Where a CSV summary of each run's counters and timings is appended, null for none.
+     */
+    /*WRITTEN*/private static String metricsFile = "metrics.csv";
+
+    /**
+     * The binary store every finished run is appended to, null for none. See RunHistory.
+     */
+    /*WRITTEN*/private static String historyFile = "history.bin";
+
+    /**
+     * Seeds every run of the experiment, written to results.out so the experiment can be replayed with --seed.
+     */
+    /*WRITTEN*/private static long seed = new SplittableRandom().nextLong();
+
+    /**
+     * When set, inversions are steered so that a city becomes adjacent to one of its
+     * nearest neighbours, instead of picking both ends of the segment at random.
+     */
+    /*WRITTEN*/private static boolean neighbourInversion;
+    /*WRITTEN*/private static int neighbourCount = 8;
+
+    /**
+     * How many of the best chromosomes get a local search pass each generation, 0 for none,
+     * and the budget of each pass (0 for unlimited).
+     */
+    /*WRITTEN*/private static int localSearchElites;
+    /*WRITTEN*/private static long localSearchEvaluations = 100000;
+    /*WRITTEN*/private static long localSearchMillis;
+
+    /**
+     * When set, the local search pass uses Lin-Kernighan style chains of up to linKernighanDepth
+     * 2-opt steps instead of single 2-opt and Or-opt moves, which pays off on large instances.
+     */
+    /*WRITTEN*/private static boolean linKernighan;
+    /*WRITTEN*/private static int linKernighanDepth = 6;
+
+    /**
+     * When set, children whose tour the population already holds are skipped and the edge entropy of
+     * every population is measured each generation. With adaptiveMutation, low entropy also strengthens
+     * mutation and finally brings in fresh nearest neighbour tours. The pool does not track diversity.
+     */
+    /*WRITTEN*/private static boolean trackDiversity;
+    /*WRITTEN*/private static boolean adaptiveMutation;
+
+    /**
+     * Refreshes population costs each generation, sequentially or across a fork-join pool.
+     */
+    /*WRITTEN*/private static PopulationEvaluator evaluator = new PopulationEvaluator(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Settings for migration between islands.
+     */
+    /*WRITTEN*/private static IslandModel.Topology migrationTopology = IslandModel.Topology.RING;
+    /*WRITTEN*/private static int migrationInterval = 10;
+    /*WRITTEN*/private static int migrants = 2;
+
+    /**
+     * Limits on each run, 0 for none. maxGenerations stays negative unless set, so that a budget
+     * on its own lifts the default of 100 generations.
+     */
+    /*WRITTEN*/private static int maxGenerations = -1;
+    /*WRITTEN*/private static long timeLimitMillis;
+    /*WRITTEN*/private static long maxEvaluations;
+    /*WRITTEN*/private static int stagnationGenerations;
+    /*WRITTEN*/private static Termination termination;
+
+    /**
+     * How many generations pass between checkpoints of a run, 0 for none, and whether runs carry
+     * on from the checkpoints left by an experiment that did not finish.
+     */
+    /*WRITTEN*/private static int checkpointInterval;
+    /*WRITTEN*/private static boolean resume;
+
+    /**
+     * Writes checkpoints in the background, in the order they were captured.
+     */
+    /*WRITTEN*/private static ExecutorService checkpointWriter;
+
+    /**
+    * Frame to display cities and paths
+    */
+    /*GIVEN*/private static JFrame frame;
+
+    /**
+     * Integers used for statistical data
+     */
+    /*GIVEN*/private static double min;
+    /*GIVEN*/private static double avg;
+    /*GIVEN*/private static double max;
+    /*GIVEN*/private static double sum;
+
+    /**
+     * Width and Height of City Map, DO NOT CHANGE THESE VALUES!
+     */
+    /*GIVEN*/private static int width = 600;
+    /*GIVEN*/private static int height = 600;
+
+
+    /*GIVEN*/private static Panel statsArea;
+    /*GIVEN*/private static TextArea statsText;
+
+    /**
+     * Draws the best tour and the printed text on the event thread, at most maxFps frames a second.
+     */
+    /*WRITTEN*/private static TourRenderer renderer;
+    /*WRITTEN*/private static int maxFps = 30;
+    /*WRITTEN*/private static final int maxStatsChars = 64 * 1024;
+
+
+    /**
+     * Writing to an output file with the costs.
+     */
+    /*GIVEN*/private static void writeLog(String content) {
+        if (resultLog != null) {
+            resultLog.write(content);
+            return;
+        }
+        String filename = "results.out";
+        FileWriter out;
+
+        try {
+            out = new FileWriter(filename, true);
+            out.write(content + "\n");
+            out.close();
+        } catch (IOException e) {
+            // TODO Auto-generated catch block
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Deals with printing same content to System.out and GUI
+     */
+    /*GIVEN*/private static void print(boolean guiEnabled, String content) {
+        if(guiEnabled) {
+            renderer.append(content + "\n");
+        }
+
+        System.out.println(content);
+    }
+
+    /**
+     * Prints for a single run, holding the output back if the run is buffered
+     */
+    /*WRITTEN*/private static void print(RunContext run, boolean guiEnabled, String content) {
+        if(run.output != null) {
+            run.output.append(content).append('\n');
+        } else {
+            print(guiEnabled, content);
+        }
+    }
+
+    /*WRITTEN*/public static void evolve(RunContext run) {
+        if(run.pool != null){
+            run.pool.evolve(run.distances, incremental ? null : evaluator, run.metrics);
+            //slot 0 always holds the best tour after a generation
+            run.pool.copyTo(0, run.chromosomes[0]);
+            return;
+        }
+        if(run.islands != null){
+            run.islands.evolve(run.distances);
+            run.chromosomes[0] = run.islands.best();
+            return;
+        }
+        evolve(run.chromosomes, run.distances, run.metrics, run.diversity);
+    }
+
+    /**
+     * @return a diversity tracker for one population, or null when diversity is not tracked
+     */
+    /*WRITTEN*/static Diversity newDiversity() {
+        return trackDiversity ? new Diversity() : null;
+    }
+
+    /**
+     * Opens the metrics CSV for appending. A file whose header names other columns, written before
+     * columns were added, is moved aside to the first free name.csv.N so every row in the file
+     * matches its header.
+     */
+    /*WRITTEN*/private static ResultLog openMetricsLog(String filename) throws IOException {
+        File file = new File(filename);
+        String header = RunMetrics.csvHeader();
+        if(file.length() > 0){
+            String existing;
+            try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+                existing = in.readLine();
+            }
+            if(!header.equals(existing)){
+                int n = 1;
+                File old;
+                do {
+                    old = new File(filename + "." + n++);
+                } while(old.exists());
+                if(!file.renameTo(old)){
+                    throw new IOException("Could not move " + filename + ", which has other columns, to " + old);
+                }
+                System.out.println(filename + " has other columns, moved it to " + old);
+            }
+        }
+        boolean fresh = file.length() == 0;
+        ResultLog log = new ResultLog(filename, 64);
+        if(fresh){
+            log.write(header);
+        }
+        return log;
+    }
+
+    /**
+     * Evolves one population by a generation of inversions of its best chromosome, outside of any run
+     */
+    /*WRITTEN*/static void evolve(Chromosome[] chromosomes, DistanceMatrix distances) {
+        evolve(chromosomes, distances, RunMetrics.unrecorded);
+    }
+
+    /**
+     * Evolves one population by a generation of inversions of its best chromosome
+     */
+    /*WRITTEN*/static void evolve(Chromosome[] chromosomes, DistanceMatrix distances, RunMetrics metrics) {
+        evolve(chromosomes, distances, metrics, null);
+    }
+
+    /**
+     * Evolves one population by a generation of inversions of its best chromosome, skipping children
+     * the population already holds and adapting the mutation when a diversity tracker is given
+     */
+    /*WRITTEN*/static void evolve(Chromosome[] chromosomes, DistanceMatrix distances, RunMetrics metrics, Diversity diversity) {
+        //establish the current costs, unless they were kept current as the cities moved
+        if(!incremental){
+            long start = metrics.start();
+            evaluator.evaluate(chromosomes, distances);
+            metrics.stop(RunMetrics.Timer.EVALUATION, start);
+            metrics.countEvaluations(chromosomes.length);
+        }
+
+        //shortest route first
+        long sortStart = metrics.start();
+        RankedPopulation ranked = new RankedPopulation(chromosomes);
+        metrics.stop(RunMetrics.Timer.SORT, sortStart);
+        NeighbourLists neighbours = neighbourInversion ? distances.neighbourLists(neighbourCount) : null;
+
+        int injected = 0;
+        int strength = 1;
+        if(diversity != null){
+            diversity.survey(chromosomes);
+            if(adaptiveMutation){
+                injected = diversity.adapt(chromosomes.length);
+                strength = diversity.strength();
+            }
+        }
+
+        int accepted = 0;
+        for(int i=0; i<chromosomes.length; ++i){
+            //the best from the previous generation is used to form the next generation
+            Chromosome parent = ranked.best();
+            int delta = neighbours != null ? parent.proposeNeighbourInversion(distances, neighbours)
+                    : parent.proposeInversion(distances);
+            double childCost = parent.getCost() + delta;
+
+            Chromosome child;
+            if(strength == 1){
+                //a child that is no better than the worst chromosome, or a copy of one already held, is never built
+                if(childCost >= ranked.worst().getCost()){
+                    continue;
+                }
+                if(diversity != null && !diversity.admit(parent.proposedHash())){
+                    continue;
+                }
+                child = parent.acceptInversion(childCost);
+            }
+            else{
+                //while diversity is low a child takes further random inversions before it is judged
+                child = parent.acceptInversion(childCost);
+                for(int k=1; k<strength; ++k){
+                    child.applyInversion(child.proposeInversion(distances));
+                }
+                if(child.getCost() >= ranked.worst().getCost() || !diversity.admit(child.hash())){
+                    continue;
+                }
+            }
+            //replace the worst performing chromosome with a child of the best performing chromosome,
+            //an improving child is ranked at the front
+            ranked.replaceWorst(child);
+            accepted++;
+        }
+        metrics.countInversions(chromosomes.length, accepted);
+
+        //mutation could not restore diversity, so the worst tours make way for new nearest neighbour tours
+        for(int i=0; i<injected; ++i){
+            Chromosome fresh = new Chromosome(distances, new int[0], ranked.best().random());
+            if(diversity.admit(fresh.hash())){
+                ranked.replaceWorst(fresh);
+            }
+        }
+
+        if(crossover != null){
+            recombine(ranked, distances, metrics, diversity);
+        }
+        if(diversity != null){
+            metrics.countDiversity(diversity.skipped(), injected, diversity.entropy());
+        }
+
+        //memetic step: polish the elites with 2-opt and Or-opt, or with Lin-Kernighan chains
+        long localSearchStart = metrics.start();
+        if(localSearchElites > 0 && linKernighan){
+            LinKernighan localSearch = new LinKernighan(distances, distances.neighbourLists(neighbourCount), linKernighanDepth);
+            localSearch.setBudget(localSearchEvaluations, localSearchMillis);
+            for(int i=0; i<Math.min(localSearchElites, chromosomes.length); ++i){
+                localSearch.improve(ranked.get(i));
+                metrics.countLocalSearchMoves(localSearch.getEvaluations());
+            }
+            ranked.resort();
+        }
+        else if(localSearchElites > 0){
+            LocalSearch localSearch = new LocalSearch(distances, distances.neighbourLists(neighbourCount));
+            localSearch.setBudget(localSearchEvaluations, localSearchMillis);
+            for(int i=0; i<Math.min(localSearchElites, chromosomes.length); ++i){
+                localSearch.improve(ranked.get(i));
+                metrics.countLocalSearchMoves(localSearch.getEvaluations());
+            }
+            ranked.resort();
+        }
+        if(localSearchElites > 0){
+            metrics.stop(RunMetrics.Timer.LOCAL_SEARCH, localSearchStart);
+        }
+    }
+
+    /**
+     * Recombines pairs of parents drawn from the best matingPopulationSize chromosomes. A child that
+     * beats the worst chromosome is written over it, so an accepted child costs no allocation.
+     */
+    /*WRITTEN*/private static void recombine(RankedPopulation ranked, DistanceMatrix distances, RunMetrics metrics,
+                                             Diversity diversity) {
+        Crossover operator = Crossover.forThread(distances.size());
+        NeighbourLists neighbours = crossover == Crossover.Operator.EAX ? distances.neighbourLists(neighbourCount) : null;
+        SplittableRandom random = ranked.best().random();
+        int pool = Math.max(2, Math.min(matingPopulationSize, ranked.size()));
+        int[] child = operator.child();
+
+        int pairs = Math.max(1, selectedParents / 2);
+        int accepted = 0;
+        for(int i=0; i<pairs; ++i){
+            Chromosome first = ranked.get(selection.pick(pool, tournamentSize, random));
+            Chromosome second = ranked.get(selection.pick(pool, tournamentSize, random));
+            if(first == second){
+                continue;
+            }
+            double childCost = operator.cross(crossover, first.cityList, first.getCost(), second.cityList, child,
+                    distances, neighbours, random);
+            if(childCost < 0 || childCost >= ranked.worst().getCost()){
+                continue;
+            }
+            if(diversity != null && !diversity.admit(Diversity.tourHash(child))){
+                continue;
+            }
+            Chromosome worst = ranked.worst();
+            worst.setTour(child, childCost);
+            ranked.replaceWorst(worst);
+            accepted++;
+        }
+        metrics.countCrossovers(pairs, accepted);
+    }
+
+    /**
+     * Update the display
+     */
+    /*GIVEN*/public static void updateGUI(RunContext run) {
+        //the renderer draws on the event thread at its own pace, so only hand it a new tour once it has taken the last
+        if (renderer.wantsSnapshot()) {
+            renderer.publish(snapshot(run));
+        }
+    }
+
+    /**
+     * Copies the best tour of a run for the renderer
+     */
+    /*WRITTEN*/private static TourRenderer.Snapshot snapshot(RunContext run) {
+        return new TourRenderer.Snapshot(run.cities, run.chromosomes[0].cityList.clone());
+    }
+
+    /*GIVEN*/private static City[] MoveCities(City[]cities, SplittableRandom randomGenerator) {
+    	City[] newPositions = new City[cities.length];
+
+        for(int i = 0; i < cities.length; i++) {
+        	int x = cities[i].getx();
+        	int y = cities[i].gety();
+        	
+            int position = randomGenerator.nextInt(5);
+            
+            if(position == 1) {
+            	y += cityShiftAmount;
+            } else if(position == 2) {
+            	x += cityShiftAmount;
+            } else if(position == 3) {
+            	y -= cityShiftAmount;
+            } else if(position == 4) {
+            	x -= cityShiftAmount;
+            }
+            
+            newPositions[i] = new City(x, y);
+        }
+        
+        return newPositions;
+    }
+
+    /**
+     * Copies the run's state and hands it to the checkpoint writer. A checkpoint is skipped while the
+     * previous one is still being written, so evolution never waits on the disk, but the final one
+     * is always queued.
+     */
+    /*WRITTEN*/private static void checkpoint(final RunContext run, long elapsedNanos, long toursCosted) {
+        if (run.stopReason == null && run.pendingCheckpoint != null && !run.pendingCheckpoint.isDone()) {
+            return;
+        }
+        final Checkpoint checkpoint = Checkpoint.capture(run, seed, elapsedNanos, toursCosted);
+        run.pendingCheckpoint = checkpointWriter.submit(new Runnable() {
+            public void run() {
+                try {
+                    checkpoint.write(Checkpoint.fileFor(run.runNumber));
+                } catch (IOException e) {
+                    System.out.println("Could not write checkpoint of run " + run.runNumber + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the checkpoint each run left behind, if any, and takes the experiment seed from them.
+     * @return the checkpoint of each run by run number, with nulls for runs that start afresh
+     */
+    /*WRITTEN*/private static Checkpoint[] readCheckpoints(int runs) {
+        Checkpoint[] restored = new Checkpoint[runs + 1];
+        for (int y = 1; y <= runs; y++) {
+            File file = Checkpoint.fileFor(y);
+            if (!file.exists()) {
+                continue;
+            }
+            try {
+                Checkpoint checkpoint = Checkpoint.read(file);
+                if (checkpoint.coordinates.length != 2 * cityCount) {
+                    System.out.println("Ignoring " + file + ", it was taken with " + checkpoint.coordinates.length / 2 + " cities");
+                    continue;
+                }
+                restored[y] = checkpoint;
+                seed = checkpoint.experimentSeed;
+            } catch (IOException e) {
+                System.out.println("Could not resume run " + y + ": " + e.getMessage());
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Waits for the last checkpoints to be written, then removes them once the whole experiment has finished.
+     * Checkpoints a resume read are removed as well, even when no new ones were being written, so a later
+     * resume does not restart runs that have already finished.
+     */
+    /*WRITTEN*/private static void finishCheckpoints(List<RunContext> contexts, boolean completed) {
+        if (checkpointWriter != null) {
+            checkpointWriter.shutdown();
+            try {
+                checkpointWriter.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            checkpointWriter = null;
+        }
+        if (completed) {
+            for (RunContext run : contexts) {
+                Checkpoint.fileFor(run.runNumber).delete();
+            }
+        }
+    }
+
+    /**
+     * The mean cost of every tour the run holds.
+     */
+    /*WRITTEN*/private static double meanCost(RunContext run) {
+        if(run.islands != null){
+            return run.islands.meanCost();
+        }
+        if(run.pool != null){
+            return run.pool.meanCost();
+        }
+        double sum = 0;
+        for(Chromosome chromosome : run.chromosomes){
+            sum += chromosome.getCost();
+        }
+        return sum / run.chromosomes.length;
+    }
+
+    /**
+     * The options that shape a run, sorted so the same configuration always reads the same in the run history.
+     * Seeds, output and checkpoint options are left out.
+     */
+    /*WRITTEN*/private static String configuration(String[] args) {
+        List<String> options = new ArrayList<String>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                continue;
+            }
+            String name = arg.indexOf('=') < 0 ? arg.substring(2) : arg.substring(2, arg.indexOf('='));
+            switch (name) {
+                case "seed":
+                case "resume":
+                case "checkpoint":
+                case "history":
+                case "metrics":
+                case "verbosity":
+                case "sample":
+                case "batch":
+                case "fps":
+                    break;
+                default:
+                    options.add(arg);
+            }
+        }
+        Collections.sort(options);
+        StringBuilder config = new StringBuilder();
+        for (String option : options) {
+            config.append(config.length() == 0 ? "" : " ").append(option);
+        }
+        return config.toString();
+    }
+
+    /**
+     * Applies a --name=value command line option.
+     * @return false if the option is not recognised
+     */
+    /*WRITTEN*/private static boolean applyOption(String option) {
+        int split = option.indexOf('=');
+        String name = split < 0 ? option.substring(2) : option.substring(2, split);
+        String value = split < 0 ? "" : option.substring(split + 1);
+
+        switch (name) {
+            case "distances":
+                distanceMode = value.equals("auto") ? null : DistanceMatrix.Mode.valueOf(value.toUpperCase());
+                return true;
+            case "kernel":
+                if (value.equals("auto")) {
+                    blockedKernel = null;
+                } else if (value.equals("blocked") || value.equals("scalar")) {
+                    blockedKernel = value.equals("blocked");
+                } else {
+                    return false;
+                }
+                return true;
+            case "pool":
+                usePool = true;
+                return true;
+            case "compact":
+                usePool = true;
+                compact = true;
+                return true;
+            case "incremental":
+                incremental = true;
+                return true;
+            case "islands":
+                islandCount = Integer.parseInt(value);
+                return true;
+            case "migration":
+                migrationTopology = IslandModel.Topology.valueOf(value.toUpperCase());
+                return true;
+            case "migration-interval":
+                migrationInterval = Integer.parseInt(value);
+                return true;
+            case "migrants":
+                migrants = Integer.parseInt(value);
+                return true;
+            case "evaluation":
+                evaluator.shutdown();
+                if (value.equals("sequential")) {
+                    evaluator = new PopulationEvaluator(1);
+                } else if (value.equals("parallel")) {
+                    evaluator = new PopulationEvaluator(Runtime.getRuntime().availableProcessors());
+                } else {
+                    evaluator = new PopulationEvaluator(Integer.parseInt(value));
+                }
+                return true;
+            case "verbosity":
+                verbosity = Verbosity.valueOf(value.toUpperCase());
+                return true;
+            case "sample":
+                verbosity = Verbosity.SAMPLED;
+                sampleInterval = Math.max(1, Integer.parseInt(value));
+                return true;
+            case "cities":
+                cityFile = value;
+                return true;
+            case "inversion":
+                neighbourInversion = value.equals("neighbour");
+                if (!neighbourInversion && !value.equals("random")) {
+                    return false;
+                }
+                return true;
+            case "neighbours":
+                neighbourCount = Integer.parseInt(value);
+                return true;
+            case "local-search":
+                localSearchElites = value.isEmpty() ? 1 : Integer.parseInt(value);
+                return true;
+            case "local-search-evaluations":
+                localSearchEvaluations = Long.parseLong(value);
+                return true;
+            case "local-search-millis":
+                localSearchMillis = Long.parseLong(value);
+                return true;
+            case "improvement":
+                linKernighan = value.equals("lk");
+                if (!linKernighan && !value.equals("two-opt")) {
+                    return false;
+                }
+                return true;
+            case "lk-depth":
+                linKernighanDepth = Integer.parseInt(value);
+                return true;
+            case "diversity":
+                trackDiversity = true;
+                return true;
+            case "adaptive-mutation":
+                trackDiversity = true;
+                adaptiveMutation = true;
+                return true;
+            case "crossover":
+                crossover = value.equals("none") ? null : Crossover.Operator.valueOf(value.toUpperCase());
+                return true;
+            case "selection":
+                selection = Selection.valueOf(value.toUpperCase());
+                return true;
+            case "tournament":
+                tournamentSize = Math.max(1, Integer.parseInt(value));
+                return true;
+            case "mating":
+                matingPopulationSize = Integer.parseInt(value);
+                return true;
+            case "parents":
+                selectedParents = Integer.parseInt(value);
+                return true;
+            case "generations":
+                maxGenerations = Integer.parseInt(value);
+                return true;
+            case "time-limit":
+                timeLimitMillis = Long.parseLong(value);
+                return true;
+            case "max-evaluations":
+                maxEvaluations = Long.parseLong(value);
+                return true;
+            case "stagnation":
+                stagnationGenerations = Integer.parseInt(value);
+                return true;
+            case "checkpoint":
+                checkpointInterval = value.isEmpty() ? 10 : Integer.parseInt(value);
+                return true;
+            case "resume":
+                resume = true;
+                return true;
+            case "seed":
+                seed = Long.parseLong(value);
+                return true;
+            case "fps":
+                maxFps = Integer.parseInt(value);
+                return true;
+            case "history":
+                historyFile = value.equals("none") ? null : value;
+                return true;
+            case "metrics":
+                metricsFile = value.equals("none") ? null : value;
+                return true;
+            case "batch":
+                batch = true;
+                return true;
+            case "threads":
+                threads = value.isEmpty() ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(value);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Creates the initial population for a run and evolves it until the termination limit is reached.
+     */
+    /*WRITTEN*/private static void runGenerations(RunContext run, boolean display) {
+        Checkpoint restored = run.restored;
+        if (restored != null && restored.finished) {
+            //finished before the experiment was interrupted, only its result is needed
+            run.generation = restored.generation;
+            run.genMin = restored.genMin;
+            if (verbosity != Verbosity.QUIET) {
+                print(run, display, "Run " + run.runNumber + " had already finished. Best cost: " + (int) run.genMin + "\n");
+            }
+            return;
+        }
+        run.metrics.begin();
+        run.genMin = 0;
+        if (verbosity != Verbosity.QUIET) {
+            print(run, display,  "Run " + run.runNumber + "\n");
+        }
+        if (restored != null) {
+            run.cities = restored.cities();
+        }
+
+        // create the initial population of chromosomes
+        run.distances = new DistanceMatrix(run.cities, distanceMode);
+        if (blockedKernel != null) {
+            run.distances.useBlockedKernel(blockedKernel);
+        }
+        if (islandCount > 1) {
+            run.islands = new IslandModel(islandCount, populationSize, run.distances, migrationTopology,
+                    migrationInterval, migrants, Runtime.getRuntime().availableProcessors(), run.metrics, run.random);
+            if (restored != null) {
+                Chromosome[][] populations = run.islands.populations();
+                for (int i = 0; i < populations.length; i++) {
+                    restored.restore(i, populations[i]);
+                }
+                run.islands.resumeAt(restored.generation);
+            }
+            run.chromosomes = new Chromosome[] { run.islands.best() };
+        } else {
+            run.chromosomes = new Chromosome[populationSize];
+            for (int x = 0; x < populationSize; x++) {
+                int[] t = new int[0];
+                run.chromosomes[x] = new Chromosome(run.distances,t,run.random);
+            }
+            if (restored != null) {
+                restored.restore(0, run.chromosomes);
+            }
+            if (usePool) {
+                run.pool = new TourPool(populationSize, cityCount, run.random, compact && cityCount <= TourPool.compactLimit);
+                run.pool.load(run.chromosomes);
+                run.chromosomes = new Chromosome[] { run.chromosomes[0] };
+            } else {
+                run.diversity = newDiversity();
+            }
+        }
+
+        run.generation = 0;
+        run.stopReason = null;
+        double thisCost = 0.0;
+        long runStart = System.nanoTime();
+        long toursCostedBefore = 0;
+        if (restored != null) {
+            if (restored.populationCount() != (run.islands != null ? islandCount : 1)) {
+                throw new IllegalStateException("Checkpoint of run " + run.runNumber + " holds "
+                        + restored.populationCount() + " populations");
+            }
+            run.generation = restored.generation;
+            run.genMin = restored.genMin;
+            run.improvedGeneration = restored.improvedGeneration;
+            run.bestTour = restored.bestTour;
+            run.bestCities = restored.bestCities();
+            runStart -= restored.elapsedNanos;
+            toursCostedBefore = restored.toursCosted;
+            if (verbosity != Verbosity.QUIET) {
+                print(run, display, "Resumed at generation " + run.generation + " with best cost " + (int) run.genMin);
+            }
+        }
+
+        while (run.stopReason == null) {
+            long generationStart = run.metrics.start();
+            long allocatedStart = RunMetrics.allocatedBytes();
+            evolve(run);
+            if(run.generation % 5 == 0 ) {
+                long moveStart = run.metrics.start();
+                run.cities = MoveCities(run.originalCities, run.random); //Move from original cities, so they only move by a maximum of one unit.
+                if(incremental){
+                    moveIncrementally(run);
+                } else {
+                    run.distances.rebuild(run.cities);
+                }
+                run.metrics.stop(RunMetrics.Timer.MOVE, moveStart);
+            }
+            run.generation++;
+
+            long sortStart = run.metrics.start();
+            Chromosome.sortChromosomes(run.chromosomes, run.chromosomes.length);
+            run.metrics.stop(RunMetrics.Timer.SORT, sortStart);
+            run.metrics.stop(RunMetrics.Timer.GENERATION, generationStart);
+            run.metrics.countGeneration(allocatedStart < 0 ? -1 : RunMetrics.allocatedBytes() - allocatedStart);
+            double cost = run.chromosomes[0].getCost();
+            thisCost = cost;
+
+            if (thisCost < run.genMin || run.genMin == 0) {
+                run.recordBest(thisCost);
+            }
+
+            run.recordGeneration(thisCost, meanCost(run));
+            if (verbosity == Verbosity.ALL
+                    || (verbosity == Verbosity.SAMPLED && run.generation % sampleInterval == 0)) {
+                print(run, display, "Gen: " + run.generation + " Cost: " + (int) thisCost);
+            }
+
+            if(display) {
+                long guiStart = run.metrics.start();
+                updateGUI(run);
+                run.metrics.stop(RunMetrics.Timer.GUI, guiStart);
+            }
+
+            long elapsed = System.nanoTime() - runStart;
+            long toursCosted = toursCostedBefore + run.metrics.toursCosted();
+            run.stopReason = termination.check(run.generation, elapsed, toursCosted, run.generation - run.improvedGeneration);
+            //the last checkpoint marks the run as finished
+            if (checkpointInterval > 0 && (run.stopReason != null || run.generation % checkpointInterval == 0)) {
+                checkpoint(run, elapsed, toursCosted);
+            }
+        }
+        run.metrics.end();
+        if(display) {
+            //make sure the best tour of the run is the one left on screen
+            renderer.publish(new TourRenderer.Snapshot(run.bestCities, run.bestTour.clone()));
+        }
+
+        if (run.islands != null) {
+            run.islands.shutdown();
+        }
+
+        if (verbosity != Verbosity.QUIET) {
+            print(run, display, "Stopped after " + run.generation + " generations: "
+                    + run.stopReason.toString().toLowerCase() + " limit reached. Best cost: " + (int) run.genMin);
+            print(run, display, "");
+        }
+    }
+
+    /**
+     * Moves the matrix to the new city positions and carries every population of a run across,
+     * correcting the costs for the edges of moved cities, or re-costing the tours once when the
+     * move is dense as MoveCities' moves are.
+     */
+    /*WRITTEN*/private static void moveIncrementally(RunContext run) {
+        CityMoves moves = new CityMoves(run.distances, run.cities);
+        moves.commit();
+        if(run.islands != null){
+            //chromosomes[0] is one of the islands' own chromosomes
+            run.islands.adjustCosts(moves);
+        } else {
+            if(run.pool != null){
+                run.pool.adjustCosts(moves);
+            }
+            moves.adjust(run.chromosomes);
+        }
+        //a dense move costs every tour again, just as an evaluation would
+        run.metrics.countEvaluations(moves.recostedTours());
+    }
+
+    /**
+     * Evolves every run on a fixed pool of worker threads and waits for them all to finish.
+     */
+    /*WRITTEN*/private static void runParallel(List<RunContext> contexts) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, contexts.size()));
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (final RunContext run : contexts) {
+                futures.add(executor.submit(new Runnable() {
+                    public void run() {
+                        runGenerations(run, false);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for runs", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A run failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /*GIVEN*/public static void main(String[] args) {
+        DateFormat df = new SimpleDateFormat("MM-dd-yyyy HH:mm:ss");
+        Date today = Calendar.getInstance().getTime();
+        String currentTime  = df.format(today);
+
+        int runs;
+        boolean display = false;
+        String formatMessage = "Usage: java tsp.TSP 1 [gui] \n java tsp.TSP [Runs] [gui] [--distances=auto|full|triangular|on_the_fly] [--kernel=auto|blocked|scalar] [--pool] [--compact] [--incremental] [--threads[=N]] [--seed=N]\n   [--islands=N] [--migration=ring|full] [--migration-interval=N] [--migrants=N]\n   [--evaluation=sequential|parallel|N]\n   [--batch] [--verbosity=quiet|summary|sampled|all] [--sample=N] [--fps=N]\n   [--cities=CityList.txt|file.tsp]\n   [--inversion=random|neighbour] [--neighbours=K]\n   [--crossover=none|ox|pmx|eax] [--selection=tournament|rank] [--tournament=K] [--mating=N] [--parents=N]\n   [--local-search[=elites]] [--local-search-evaluations=N] [--local-search-millis=N]\n   [--improvement=two-opt|lk] [--lk-depth=N]\n   [--diversity] [--adaptive-mutation]\n   [--generations=N] [--time-limit=MILLIS] [--max-evaluations=N] [--stagnation=K]\n   [--checkpoint[=N]] [--resume]\n   (a resumed run draws from a new seed, so it does not repeat the uninterrupted run exactly)\n   [--metrics=metrics.csv|none] [--history=history.bin|none]";
+
+        String config = configuration(args);
+        ArrayList<String> positional = new ArrayList<String>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                positional.add(arg);
+            } else if (!applyOption(arg)) {
+                System.out.println("Unknown option " + arg);
+                System.out.println(formatMessage);
+                return;
+            }
+        }
+        args = positional.toArray(new String[positional.size()]);
+
+        if (args.length < 1) {
+            System.out.println("Please enter the arguments");
+            System.out.println(formatMessage);
+            display = false;
+        } else {
+
+            if (args.length > 1 && !batch) {
+                display = true;
+            }
+            if (verbosity == null) {
+                verbosity = batch ? Verbosity.SUMMARY : Verbosity.ALL;
+            }
+            termination = new Termination(maxGenerations, timeLimitMillis, maxEvaluations, stagnationGenerations);
+            if (termination.isUnbounded()) {
+                System.out.println("Runs need at least one of --generations, --time-limit, --max-evaluations or --stagnation");
+                System.out.println(formatMessage);
+                return;
+            }
+            if (batch) {
+                //one large buffer instead of a flush per line
+                System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false));
+            }
+
+            List<RunContext> contexts = new ArrayList<RunContext>();
+            ResultLog metricsLog = null;
+            try {
+                cityCount = 50;
+                populationSize = 100;
+                if (matingPopulationSize == 0) {
+                    matingPopulationSize = populationSize / 2;
+                }
+                if (selectedParents == 0) {
+                    selectedParents = populationSize / 5;
+                }
+                runs = Integer.parseInt(args[0]);
+
+                if(display) {
+                    frame = new JFrame("Traveling Salesman");
+                    statsArea = new Panel();
+
+                    frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+                    frame.pack();
+                    frame.setSize(width + 300, height);
+                    frame.setResizable(false);
+                    frame.setLayout(new BorderLayout());
+
+                    statsText = new TextArea(35, 35);
+                    statsText.setEditable(false);
+
+                    statsArea.add(statsText);
+                    frame.add(statsArea, BorderLayout.EAST);
+                    renderer = new TourRenderer(width, height, statsText, maxFps, maxStatsChars);
+                    frame.add(renderer.canvas(), BorderLayout.CENTER);
+
+                    frame.setVisible(true);
+                }
+
+
+                min = 0;
+                avg = 0;
+                max = 0;
+                sum = 0;
+
+                City[] originalCities;
+                try {
+                    originalCities = CityLoader.load(cityFile).toCities();
+                } catch (IOException e) {
+                    System.out.println("Could not load cities: " + e.getMessage());
+                    return;
+                }
+                cityCount = originalCities.length;
+                if (distanceMode != null && !DistanceMatrix.fits(distanceMode, cityCount)) {
+                    DistanceMatrix.Mode fallback = DistanceMatrix.fallbackFor(distanceMode, cityCount);
+                    System.out.println("A " + distanceMode.name().toLowerCase() + " distance matrix cannot hold "
+                            + cityCount + " cities, using " + fallback.name().toLowerCase() + " instead");
+                    distanceMode = fallback;
+                }
+
+                //the GUI can only follow one run at a time
+                boolean parallel = threads > 1 && runs > 1 && !display;
+                Checkpoint[] restored = resume ? readCheckpoints(runs) : new Checkpoint[runs + 1];
+                if (checkpointInterval > 0) {
+                    checkpointWriter = Executors.newSingleThreadExecutor();
+                }
+                SplittableRandom seeds = new SplittableRandom(seed);
+                for (int y = 1; y <= runs; y++) {
+                    long runSeed = seeds.nextLong();
+                    boolean carriesOn = restored[y] != null && !restored[y].finished;
+                    RunContext run = new RunContext(y, originalCities, carriesOn ? restored[y].resumeSeed() : runSeed, parallel);
+                    run.restored = restored[y];
+                    run.metrics.register(y);
+                    contexts.add(run);
+                }
+
+                try {
+                    resultLog = new ResultLog("results.out", 1024);
+                } catch (IOException e) {
+                    //fall back to opening the file for every line
+                    e.printStackTrace();
+                }
+                if (metricsFile != null) {
+                    try {
+                        metricsLog = openMetricsLog(metricsFile);
+                    } catch (IOException e) {
+                        System.out.println("Could not open " + metricsFile + ": " + e.getMessage());
+                    }
+                }
+                writeLog("Run Stats for experiment at: " + currentTime);
+                writeLog("Seed: " + seed);
+                if (parallel) {
+                    runParallel(contexts);
+                }
+                RunHistory history = historyFile == null ? null : new RunHistory(historyFile);
+                int generation = 0;
+                for (RunContext run : contexts) {
+                    if (parallel) {
+                        System.out.print(run.output);
+                    } else {
+                        runGenerations(run, display);
+                    }
+                    generation = run.generation;
+                    double genMin = run.genMin;
+
+                    writeLog(genMin + "");
+                    //a run that finished before a resume was recorded then
+                    if (run.restored == null || !run.restored.finished) {
+                        if (metricsLog != null) {
+                            metricsLog.write(run.metrics.csvRow(currentTime, run.runNumber, cityCount, populationSize, genMin));
+                        }
+                        if (history != null) {
+                            try {
+                                history.append(RunHistory.Record.of(run, today.getTime(), config, seed, populationSize));
+                            } catch (IOException e) {
+                                System.out.println("Could not record run " + run.runNumber + " in " + historyFile + ": " + e.getMessage());
+                            }
+                        }
+                    }
+
+                    if (genMin > max) {
+                        max = genMin;
+                    }
+
+                    if (genMin < min || min == 0) {
+                        min = genMin;
+                    }
+
+                    sum +=  genMin;
+                }
+
+                avg = sum / runs;
+                print(display, "Statistics after " + runs + " runs");
+                print(display, "Solution found after " + generation + " generations." + "\n");
+                print(display, "Statistics of minimum cost from each run \n");
+                print(display, "Lowest: " + min + "\nAverage: " + avg + "\nHighest: " + max + "\n");
+                finishCheckpoints(contexts, true);
+
+            } catch (NumberFormatException e) {
+                System.out.println("Please ensure you enter integers for cities and population size");
+                System.out.println(formatMessage);
+            } finally {
+                evaluator.shutdown();
+                if (resultLog != null) {
+                    resultLog.close();
+                    resultLog = null;
+                }
+                if (metricsLog != null) {
+                    metricsLog.close();
+                }
+                finishCheckpoints(contexts, false);
+                for (RunContext run : contexts) {
+                    run.metrics.unregister();
+                }
+                System.out.flush();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package tsp;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a run stops evolving.
+ *
+ * A run stops at the first limit it reaches: a number of generations, a wall clock
+ * budget, a budget of costed tours, or a number of generations in a row without a
+ * new lowest cost. Limits are checked between generations, so a run may overshoot
+ * its time budget by up to one generation. Without any other limit a run stops
+ * after 100 generations, as it always has.
+ */
+public class Termination {
+
+    /**
+     * Which limit stopped a run.
+     */
+    public enum Reason {
+        GENERATIONS, TIME, EVALUATIONS, STAGNATION
+    }
+
+    private static final int defaultGenerations = 100;
+
+    /**
+     * Each limit, 0 for none. maxGenerations is negative until it is set explicitly.
+     */
+    private final int maxGenerations;
+    private final long maxNanos;
+    private final long maxEvaluations;
+    private final int stagnation;
+
+    /**
+     * Constructor.
+     *
+     * @param maxGenerations Most generations per run, 0 for no limit, negative for the default.
+     * @param maxMillis      Most wall clock time per run, 0 for no limit.
+     * @param maxEvaluations Most tours costed per run, 0 for no limit.
+     * @param stagnation     Most generations in a row without a new lowest cost, 0 for no limit.
+     */
+    public Termination(int maxGenerations, long maxMillis, long maxEvaluations, int stagnation) {
+        boolean budgeted = maxMillis > 0 || maxEvaluations > 0 || stagnation > 0;
+        this.maxGenerations = maxGenerations >= 0 ? maxGenerations : budgeted ? 0 : defaultGenerations;
+        this.maxNanos = TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        this.maxEvaluations = maxEvaluations;
+        this.stagnation = stagnation;
+    }
+
+    /**
+     * @return Whether a run could go on forever, because no limit is set.
+     */
+    public boolean isUnbounded() {
+        return maxGenerations == 0 && maxNanos == 0 && maxEvaluations == 0 && stagnation == 0;
+    }
+
+    /**
+     * Check the limits after a generation.
+     *
+     * @param generations         How many generations the run has finished.
+     * @param elapsedNanos        How long the run has been evolving.
+     * @param evaluations         How many tours the run has costed, in full or by a change of edges.
+     * @param stagnantGenerations How many generations have passed since the lowest cost last improved.
+     * @return The limit that was reached, or null to go on.
+     */
+    public Reason check(int generations, long elapsedNanos, long evaluations, int stagnantGenerations) {
+        if (maxGenerations > 0 && generations >= maxGenerations) {
+            return Reason.GENERATIONS;
+        }
+        if (maxNanos > 0 && elapsedNanos >= maxNanos) {
+            return Reason.TIME;
+        }
+        if (maxEvaluations > 0 && evaluations >= maxEvaluations) {
+            return Reason.EVALUATIONS;
+        }
+        if (stagnation > 0 && stagnantGenerations >= stagnation) {
+            return Reason.STAGNATION;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,142 @@
+package tsp;
+
+/**
+ * Computes the length of a whole tour straight from interleaved city coordinates,
+ * in blocks laid out so the JIT can vectorize the arithmetic.
+ *
+ * The scalar loop interleaves two dependent coordinate lookups per edge with the
+ * square root, so each edge waits on its loads. Here a block of edges is first
+ * gathered into two flat arrays of coordinate differences, and a second loop with
+ * no indirection squares, takes the root and truncates every lane. The result is
+ * the same integer truncated sum as City.proximity over each edge, as
+ * TourLengthKernelTest checks.
+ *
+ * Each thread reuses its own buffers, see forThread.
+ */
+public class TourLengthKernel {
+
+    /**
+     * How many edges are gathered before they are summed, small enough to stay in L1.
+     */
+    private static final int block = 256;
+
+    private static final ThreadLocal<TourLengthKernel> kernels = new ThreadLocal<TourLengthKernel>() {
+        @Override
+        protected TourLengthKernel initialValue() {
+            return new TourLengthKernel();
+        }
+    };
+
+    /**
+     * Coordinate differences of the edges in the current block.
+     */
+    private final int[] xdiffs = new int[block];
+    private final int[] ydiffs = new int[block];
+
+    /**
+     * @return The calling thread's kernel.
+     */
+    public static TourLengthKernel forThread() {
+        return kernels.get();
+    }
+
+    /**
+     * The length of a closed tour, including the return home.
+     *
+     * @param coordinates City coordinates interleaved as x0, y0, x1, y1, ...
+     * @param genes       The buffer holding the tour.
+     * @param offset      Where the tour starts in genes.
+     * @param length      The number of cities in the tour.
+     * @return The sum of the truncated edge lengths.
+     */
+    public double length(int[] coordinates, int[] genes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int end = offset + length - 1;
+        long total = 0;
+        for (int start = offset; start < end; start += block) {
+            int count = Math.min(block, end - start);
+            for (int k = 0; k < count; k++) {
+                int a = 2 * genes[start + k];
+                int b = 2 * genes[start + k + 1];
+                xdiffs[k] = coordinates[a] - coordinates[b];
+                ydiffs[k] = coordinates[a + 1] - coordinates[b + 1];
+            }
+            total += sumBlock(count);
+        }
+        return total + edge(coordinates, genes[offset], genes[end]); //Adding return home
+    }
+
+    /**
+     * The length of a closed tour stored as chars, as in a compact TourPool.
+     *
+     * @param coordinates City coordinates interleaved as x0, y0, x1, y1, ...
+     * @param genes       The buffer holding the tour.
+     * @param offset      Where the tour starts in genes.
+     * @param length      The number of cities in the tour.
+     * @return The sum of the truncated edge lengths.
+     */
+    public double length(int[] coordinates, char[] genes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int end = offset + length - 1;
+        long total = 0;
+        for (int start = offset; start < end; start += block) {
+            int count = Math.min(block, end - start);
+            for (int k = 0; k < count; k++) {
+                int a = 2 * genes[start + k];
+                int b = 2 * genes[start + k + 1];
+                xdiffs[k] = coordinates[a] - coordinates[b];
+                ydiffs[k] = coordinates[a + 1] - coordinates[b + 1];
+            }
+            total += sumBlock(count);
+        }
+        return total + edge(coordinates, genes[offset], genes[end]); //Adding return home
+    }
+
+    /**
+     * The same edge by edge sum as DistanceMatrix.tourCost, for comparison.
+     *
+     * @param coordinates City coordinates interleaved as x0, y0, x1, y1, ...
+     * @param genes       The buffer holding the tour.
+     * @param offset      Where the tour starts in genes.
+     * @param length      The number of cities in the tour.
+     * @return The sum of the truncated edge lengths.
+     */
+    public static double scalarLength(int[] coordinates, int[] genes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        int end = offset + length - 1;
+        double cost = 0;
+        for (int i = offset; i < end; i++) {
+            cost += edge(coordinates, genes[i], genes[i + 1]);
+        }
+        cost += edge(coordinates, genes[offset], genes[end]); //Adding return home
+        return cost;
+    }
+
+    /**
+     * Squares, roots and truncates every lane of the current block. No lookups, so the loop can vectorize.
+     */
+    private long sumBlock(int count) {
+        long total = 0;
+        for (int k = 0; k < count; k++) {
+            int xdiff = xdiffs[k];
+            int ydiff = ydiffs[k];
+            total += (int) Math.sqrt(xdiff * xdiff + ydiff * ydiff);
+        }
+        return total;
+    }
+
+    /**
+     * Same formula as City.proximity.
+     */
+    private static int edge(int[] coordinates, int a, int b) {
+        int xdiff = coordinates[2 * a] - coordinates[2 * b];
+        int ydiff = coordinates[2 * a + 1] - coordinates[2 * b + 1];
+        return (int) Math.sqrt(xdiff * xdiff + ydiff * ydiff);
+    }
+}
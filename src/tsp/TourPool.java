@@ -0,0 +1,405 @@
+package tsp;
+
+import java.util.SplittableRandom;
+
+/**
+ * A whole population held as one contiguous gene buffer and a parallel cost array.
+ *
+ * Slot s holds its tour in genes[s * cityCount .. (s + 1) * cityCount). After
+ * the population has been loaded, evolve() performs no heap allocation beyond
+ * the tasks of a parallel evaluator: children are written over existing slots
+ * and sorting permutes the slots into a second buffer which is then swapped
+ * with the first.
+ *
+ * A compact pool stores each city as a char instead of an int, which halves the
+ * memory of the population and the cache lines touched per tour. It holds at most
+ * compactLimit cities.
+ */
+public class TourPool {
+
+    /**
+     * Most cities a compact pool can hold, the number of distinct char values.
+     */
+    public static final int compactLimit = Character.MAX_VALUE + 1;
+
+    /**
+     * How many tours the pool holds.
+     */
+    private final int size;
+
+    /**
+     * How many cities each tour visits.
+     */
+    private final int cityCount;
+
+    /**
+     * The tours of the current generation, and the buffer the next ordering is written to.
+     * A compact pool uses the char buffers and leaves the int buffers null.
+     */
+    private int[] genes;
+    private int[] spareGenes;
+    private char[] compactGenes;
+    private char[] spareCompactGenes;
+
+    /**
+     * The cost of each slot, and the buffer the next ordering is written to.
+     */
+    private double[] costs;
+    private double[] spareCosts;
+
+    /**
+     * The slot holding each rank, used while sorting and while a generation inserts its children.
+     */
+    private final int[] order;
+
+    private final SplittableRandom random;
+
+    /**
+     * Bounds of the inversion currently being considered.
+     */
+    private int lower;
+    private int upper;
+
+    /**
+     * Constructor.
+     *
+     * @param size      How many tours the pool holds.
+     * @param cityCount How many cities each tour visits.
+     * @param random    Where the pool's inversions are drawn from.
+     */
+    public TourPool(int size, int cityCount, SplittableRandom random) {
+        this(size, cityCount, random, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param size      How many tours the pool holds.
+     * @param cityCount How many cities each tour visits.
+     * @param random    Where the pool's inversions are drawn from.
+     * @param compact   Whether cities are stored as chars, which needs cityCount to be at most compactLimit.
+     */
+    public TourPool(int size, int cityCount, SplittableRandom random, boolean compact) {
+        if (compact && cityCount > compactLimit) {
+            throw new IllegalArgumentException("A compact pool holds at most " + compactLimit + " cities but got " + cityCount);
+        }
+        this.size = size;
+        this.random = random;
+        this.cityCount = cityCount;
+        if (compact) {
+            compactGenes = new char[size * cityCount];
+            spareCompactGenes = new char[size * cityCount];
+        } else {
+            genes = new int[size * cityCount];
+            spareGenes = new int[size * cityCount];
+        }
+        costs = new double[size];
+        spareCosts = new double[size];
+        order = new int[size];
+    }
+
+    /**
+     * Copy the tours and costs of existing chromosomes into the pool.
+     *
+     * @param chromosomes One chromosome per slot.
+     */
+    public void load(Chromosome[] chromosomes) {
+        for (int slot = 0; slot < size; slot++) {
+            int[] tour = chromosomes[slot].cityList;
+            if (compactGenes != null) {
+                int offset = slot * cityCount;
+                for (int i = 0; i < cityCount; i++) {
+                    compactGenes[offset + i] = (char) tour[i];
+                }
+            } else {
+                System.arraycopy(tour, 0, genes, slot * cityCount, cityCount);
+            }
+            costs[slot] = chromosomes[slot].getCost();
+        }
+    }
+
+    /**
+     * Copy a slot into an existing chromosome, which then acts as a view of that slot.
+     *
+     * @param slot   The slot to copy.
+     * @param target The chromosome to overwrite.
+     */
+    public void copyTo(int slot, Chromosome target) {
+        if (compactGenes != null) {
+            int offset = slot * cityCount;
+            int[] tour = target.cityList;
+            for (int i = 0; i < cityCount; i++) {
+                tour[i] = compactGenes[offset + i];
+            }
+        } else {
+            System.arraycopy(genes, slot * cityCount, target.cityList, 0, cityCount);
+        }
+        target.cost = costs[slot];
+        target.tourChanged();
+    }
+
+    /**
+     * Copy every slot out of the pool.
+     *
+     * @param targetGenes The tours, back to back, size() * cityCount long.
+     * @param targetCosts The costs, size() long.
+     */
+    public void copyTo(int[] targetGenes, double[] targetCosts) {
+        if (compactGenes != null) {
+            for (int i = 0; i < targetGenes.length; i++) {
+                targetGenes[i] = compactGenes[i];
+            }
+        } else {
+            System.arraycopy(genes, 0, targetGenes, 0, size * cityCount);
+        }
+        System.arraycopy(costs, 0, targetCosts, 0, size);
+    }
+
+    /**
+     * @param slot The slot.
+     * @param i    The position in the tour.
+     * @return The ith city of the tour in the given slot.
+     */
+    public int getCity(int slot, int i) {
+        return compactGenes != null ? compactGenes[slot * cityCount + i] : genes[slot * cityCount + i];
+    }
+
+    /**
+     * @param slot The slot.
+     * @return The cost of the tour in the given slot.
+     */
+    public double getCost(int slot) {
+        return costs[slot];
+    }
+
+    /**
+     * @return The mean cost of the slots.
+     */
+    public double meanCost() {
+        double sum = 0;
+        for (int slot = 0; slot < size; slot++) {
+            sum += costs[slot];
+        }
+        return sum / size;
+    }
+
+    /**
+     * @return Whether cities are stored as chars.
+     */
+    public boolean isCompact() {
+        return compactGenes != null;
+    }
+
+    /**
+     * @return How many tours the pool holds.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Recompute the cost of every slot.
+     *
+     * @param distances The distances between the cities for the current layout.
+     */
+    public void evaluate(DistanceMatrix distances) {
+        evaluate(0, size, distances);
+    }
+
+    /**
+     * Recompute the cost of slots [from, to). Distinct ranges may be evaluated concurrently.
+     *
+     * @param from      The first slot to evaluate.
+     * @param to        One past the last slot to evaluate.
+     * @param distances The distances between the cities for the current layout.
+     */
+    public void evaluate(int from, int to, DistanceMatrix distances) {
+        for (int slot = from; slot < to; slot++) {
+            costs[slot] = cost(slot, distances);
+        }
+    }
+
+    /**
+     * Reorder the slots from cheapest to most expensive, writing them into the spare buffers.
+     */
+    public void sort() {
+        //binary insertion, a slot goes after any slot that costs the same
+        for (int slot = 0; slot < size; slot++) {
+            int rank = upperBound(costs[slot], slot);
+            System.arraycopy(order, rank, order, rank + 1, slot - rank);
+            order[rank] = slot;
+        }
+        arrange();
+    }
+
+    /**
+     * Write the slots into the spare buffers in the sequence given by order, then swap the buffers.
+     */
+    private void arrange() {
+        //arraycopy takes either kind of buffer
+        Object from = compactGenes != null ? compactGenes : genes;
+        Object to = compactGenes != null ? spareCompactGenes : spareGenes;
+        for (int rank = 0; rank < size; rank++) {
+            System.arraycopy(from, order[rank] * cityCount, to, rank * cityCount, cityCount);
+            spareCosts[rank] = costs[order[rank]];
+        }
+
+        int[] tempGenes = genes;
+        genes = spareGenes;
+        spareGenes = tempGenes;
+        char[] tempCompactGenes = compactGenes;
+        compactGenes = spareCompactGenes;
+        spareCompactGenes = tempCompactGenes;
+        double[] tempCosts = costs;
+        costs = spareCosts;
+        spareCosts = tempCosts;
+    }
+
+    /**
+     * Correct the cost of every slot for cities that have moved.
+     *
+     * @param moves The cities that moved.
+     */
+    public void adjustCosts(CityMoves moves) {
+        for (int slot = 0; slot < size; slot++) {
+            costs[slot] = compactGenes != null
+                    ? moves.newCost(compactGenes, slot * cityCount, cityCount, costs[slot])
+                    : moves.newCost(genes, slot * cityCount, cityCount, null, costs[slot]);
+        }
+    }
+
+    /**
+     * One generation with the same rules as TSP.evolve: the best tour is inverted
+     * once per slot and a child that beats the worst tour evicts it and is inserted
+     * at its rank. Ranks are kept in order while the generation runs, so only slot
+     * numbers move, and the slots are rearranged by rank once at the end.
+     *
+     * @param distances The distances between the cities for the current layout.
+     * @param evaluator How the costs are refreshed at the start of the generation, null if they are already current.
+     * @param metrics   Where the generation's counters and timings are recorded.
+     */
+    public void evolve(DistanceMatrix distances, PopulationEvaluator evaluator, RunMetrics metrics) {
+        if (evaluator != null) {
+            long start = metrics.start();
+            evaluator.evaluate(this, distances);
+            metrics.stop(RunMetrics.Timer.EVALUATION, start);
+            metrics.countEvaluations(size);
+        }
+        long sortStart = metrics.start();
+        sort();
+        metrics.stop(RunMetrics.Timer.SORT, sortStart);
+
+        for (int rank = 0; rank < size; rank++) {
+            order[rank] = rank;
+        }
+        int last = size - 1;
+        int accepted = 0;
+        for (int i = 0; i < size; ++i) {
+            int parent = order[0];
+            double childCost = costs[parent] + proposeInversion(parent, distances);
+
+            //a child that is no better than the worst tour is never written
+            int child = order[last];
+            if (childCost >= costs[child]) {
+                continue;
+            }
+            copySlot(parent, child);
+            if (compactGenes != null) {
+                reverse(compactGenes, child * cityCount + lower, child * cityCount + upper);
+            } else {
+                Chromosome.reverse(genes, child * cityCount + lower, child * cityCount + upper);
+            }
+            costs[child] = childCost;
+            accepted++;
+
+            //the worst tour is evicted and the child placed at its rank, as RankedPopulation.replaceWorst does
+            int rank = upperBound(childCost, last);
+            System.arraycopy(order, rank, order, rank + 1, last - rank);
+            order[rank] = child;
+        }
+        metrics.countInversions(size, accepted);
+        arrange();
+    }
+
+    /**
+     * Binary search over ranks [0, num) for the first one whose tour costs more than cost.
+     */
+    private int upperBound(double cost, int num) {
+        int low = 0;
+        int high = num;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (costs[order[mid]] <= cost) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Picks a random segment of a tour and returns how its cost would change if reversed.
+     */
+    private int proposeInversion(int slot, DistanceMatrix distances) {
+        //a tour of three or fewer cities has the same cost in any order
+        if (cityCount <= 3) {
+            lower = 0;
+            upper = 0;
+            return 0;
+        }
+        lower = random.nextInt(cityCount);
+        upper = random.nextInt(cityCount);
+        while (lower == upper) {
+            upper = random.nextInt(cityCount);
+        }
+        if (lower > upper) {
+            int temp = upper;
+            upper = lower;
+            lower = temp;
+        }
+        int offset = slot * cityCount;
+        if (compactGenes == null) {
+            return Chromosome.inversionDelta(genes, offset, cityCount, lower, upper, distances);
+        }
+        //same as Chromosome.inversionDelta
+        if (upper - lower >= cityCount - 2) {
+            return 0;
+        }
+        int before = compactGenes[offset + (lower == 0 ? cityCount - 1 : lower - 1)];
+        int after = compactGenes[offset + (upper == cityCount - 1 ? 0 : upper + 1)];
+        int first = compactGenes[offset + lower];
+        int last = compactGenes[offset + upper];
+        return distances.distance(before, last) + distances.distance(first, after)
+                - distances.distance(before, first) - distances.distance(last, after);
+    }
+
+    private void copySlot(int from, int to) {
+        if (compactGenes != null) {
+            System.arraycopy(compactGenes, from * cityCount, compactGenes, to * cityCount, cityCount);
+        } else {
+            System.arraycopy(genes, from * cityCount, genes, to * cityCount, cityCount);
+        }
+        costs[to] = costs[from];
+    }
+
+    private double cost(int slot, DistanceMatrix distances) {
+        if (compactGenes != null) {
+            return distances.tourCost(compactGenes, slot * cityCount, cityCount);
+        }
+        return distances.tourCost(genes, slot * cityCount, cityCount);
+    }
+
+    /**
+     * Reverses genes[lower..upper] in place, like Chromosome.reverse.
+     */
+    private static void reverse(char[] genes, int lower, int upper) {
+        while (lower < upper) {
+            char temp = genes[lower];
+            genes[lower] = genes[upper];
+            genes[upper] = temp;
+            lower++;
+            upper--;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package tsp;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.TextArea;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * Draws the best tour on the Swing event thread, decoupled from the solver.
+ *
+ * The solver publishes immutable snapshots into a single slot mailbox, where a
+ * newer snapshot simply replaces one that has not been drawn yet. A Swing timer
+ * takes the latest snapshot at most maxFps times a second, draws it into a back
+ * buffer that is reused from frame to frame and repaints the canvas from it.
+ * Text for the stats area is batched the same way, and the area only keeps the
+ * most recent maxStatsChars characters.
+ */
+public class TourRenderer {
+
+    /**
+     * The best tour at one moment of a run. Never modified once published.
+     */
+    public static final class Snapshot {
+
+        /**
+         * The city positions the tour was evaluated on. City arrays are replaced, never changed, when cities move.
+         */
+        final City[] cities;
+        final int[] tour;
+
+        Snapshot(City[] cities, int[] tour) {
+            this.cities = cities;
+            this.tour = tour;
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final TextArea statsText;
+    private final int maxStatsChars;
+
+    private final AtomicReference<Snapshot> mailbox = new AtomicReference<Snapshot>();
+
+    /**
+     * Text printed since the last frame, guarded by itself.
+     */
+    private final StringBuilder pendingText = new StringBuilder();
+
+    private final BufferedImage backBuffer;
+    private final MapView canvas = new MapView();
+    private final Timer timer;
+
+    /**
+     * Constructor, starts the frame timer.
+     *
+     * @param width         Width of the city map.
+     * @param height        Height of the city map.
+     * @param statsText     Where printed text is shown.
+     * @param maxFps        Most frames drawn per second.
+     * @param maxStatsChars How much text the stats area keeps.
+     */
+    public TourRenderer(int width, int height, TextArea statsText, int maxFps, int maxStatsChars) {
+        this.width = width;
+        this.height = height;
+        this.statsText = statsText;
+        this.maxStatsChars = maxStatsChars;
+        backBuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        canvas.setPreferredSize(new Dimension(width, height));
+        timer = new Timer(1000 / Math.max(1, maxFps), new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                frame();
+            }
+        });
+        timer.start();
+    }
+
+    /**
+     * @return The component the tour is drawn on.
+     */
+    public JComponent canvas() {
+        return canvas;
+    }
+
+    /**
+     * @return Whether the last published snapshot has been drawn, so a new one is worth building.
+     */
+    public boolean wantsSnapshot() {
+        return mailbox.get() == null;
+    }
+
+    /**
+     * Hand the renderer a new best tour, replacing any that has not been drawn yet.
+     *
+     * @param snapshot The tour, which the caller must not modify afterwards.
+     */
+    public void publish(Snapshot snapshot) {
+        mailbox.set(snapshot);
+    }
+
+    /**
+     * Queue text for the stats area.
+     *
+     * @param text The text, including any line breaks.
+     */
+    public void append(String text) {
+        synchronized (pendingText) {
+            pendingText.append(text);
+        }
+    }
+
+    /**
+     * Called on the event thread for every tick of the timer.
+     */
+    private void frame() {
+        String text;
+        synchronized (pendingText) {
+            text = pendingText.length() == 0 ? null : pendingText.toString();
+            pendingText.setLength(0);
+        }
+        if (text != null) {
+            showText(text);
+        }
+
+        Snapshot snapshot = mailbox.getAndSet(null);
+        if (snapshot != null) {
+            draw(snapshot);
+            canvas.repaint();
+        }
+    }
+
+    private void showText(String text) {
+        statsText.append(text);
+        //drop whole lines from the front once the area holds too much
+        int excess = statsText.getText().length() - maxStatsChars;
+        if (excess > 0) {
+            String current = statsText.getText();
+            int cut = current.indexOf('\n', excess);
+            statsText.replaceRange("", 0, cut < 0 ? current.length() : cut + 1);
+        }
+    }
+
+    /**
+     * Same picture as the original TSP.updateGUI: green cities and the tour in grey.
+     */
+    private void draw(Snapshot snapshot) {
+        Graphics2D g = backBuffer.createGraphics();
+        try {
+            g.setColor(Color.black);
+            g.fillRect(0, 0, width, height);
+
+            City[] cities = snapshot.cities;
+            int[] tour = snapshot.tour;
+            g.setColor(Color.green);
+            for (City city : cities) {
+                g.fillOval(city.getx() - 5, city.gety() - 5, 10, 10);
+            }
+
+            g.setColor(Color.gray);
+            for (int i = 1; i < tour.length; i++) {
+                City from = cities[tour[i - 1]];
+                City to = cities[tour[i]];
+                g.drawLine(to.getx(), to.gety(), from.getx(), from.gety());
+            }
+            if (tour.length > 0) {
+                //Drawing line returning home
+                City home = cities[tour[0]];
+                City last = cities[tour[tour.length - 1]];
+                g.drawLine(home.getx(), home.gety(), last.getx(), last.gety());
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Shows the back buffer.
+     */
+    private class MapView extends JComponent {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            g.drawImage(backBuffer, 0, 0, null);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package tsp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Checks that CityLoader reads both file formats and reports malformed files by line.
+ *
+ * Each case is written to a temporary file and loaded. A good file must give the
+ * listed cities, and a bad one must fail with an IOException whose message names
+ * the offending line.
+ *
+ * mvn test runs it. It exits with status 1 on a failure, which fails the build.
+ */
+public class CityLoaderTest {
+
+    private static final String tsplibHeader = "NAME : check\nTYPE : TSP\n";
+
+    public static void main(String[] args) throws IOException {
+        int failures = 0;
+        failures += expectCities("x, y lines", "1, 2\n3.5, 4\n\n-5, 6e1\n", new int[]{1, 4, -5}, new int[]{2, 4, 60});
+        failures += expectCities("TSPLIB", tsplibHeader + "DIMENSION : 2\nEDGE_WEIGHT_TYPE : EUC_2D\nNODE_COORD_SECTION\n1 10 20\n2 30 40\nEOF\n",
+                new int[]{10, 30}, new int[]{20, 40});
+        failures += expectError("missing number", "1, 2\n3\n", "line 2 needs 2 numbers but has 1");
+        failures += expectError("extra number", "1, 2\n3, 4\n5, 6, 7\n", "line 3 has more than 2 numbers");
+        failures += expectError("malformed DIMENSION", tsplibHeader + "DIMENSION : many\nNODE_COORD_SECTION\n",
+                "line 3 has a malformed DIMENSION many");
+        failures += expectError("DIMENSION mismatch", tsplibHeader + "DIMENSION : 3\nNODE_COORD_SECTION\n1 10 20\n2 30 40\n",
+                "declares DIMENSION 3 but lists 2 cities");
+        if (failures > 0) {
+            System.out.println(failures + " failures");
+            System.exit(1);
+        }
+        System.out.println("CityLoaderTest passed");
+    }
+
+    private static int expectCities(String what, String contents, int[] xs, int[] ys) throws IOException {
+        File file = write(contents);
+        try {
+            CityLoader loader = CityLoader.load(file.getPath());
+            for (int i = 0; i < xs.length && i < loader.size(); i++) {
+                if (loader.getXs()[i] != xs[i] || loader.getYs()[i] != ys[i]) {
+                    System.out.println(what + ": city " + i + " is " + loader.getXs()[i] + ", " + loader.getYs()[i]
+                            + " but should be " + xs[i] + ", " + ys[i]);
+                    return 1;
+                }
+            }
+            if (loader.size() != xs.length) {
+                System.out.println(what + ": expected " + xs.length + " cities but got " + loader.size());
+                return 1;
+            }
+            return 0;
+        } catch (IOException e) {
+            System.out.println(what + ": failed to load: " + e.getMessage());
+            return 1;
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static int expectError(String what, String contents, String message) throws IOException {
+        File file = write(contents);
+        try {
+            CityLoader.load(file.getPath());
+            System.out.println(what + ": loaded but should fail with \"" + message + "\"");
+            return 1;
+        } catch (IOException e) {
+            if (e.getMessage() == null || !e.getMessage().contains(message)) {
+                System.out.println(what + ": expected \"" + message + "\" but got \"" + e.getMessage() + "\"");
+                return 1;
+            }
+            return 0;
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static File write(String contents) throws IOException {
+        File file = File.createTempFile("cities", ".txt");
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+}
@@ -0,0 +1,141 @@
+package tsp;
+
+import java.util.SplittableRandom;
+
+/**
+ * Checks that CityMoves carries tour costs across a city move exactly.
+ *
+ * Tours are costed on one layout, the cities are moved, and the costs corrected
+ * through CityMoves must equal the same tours re-costed on a matrix built for the
+ * new layout. Moves are made as TSP.MoveCities makes them, which shifts about four
+ * cities in five and so must take the dense path, and by moving 1% of the cities,
+ * which must take the per-edge correction. Only the dense move may re-cost tours
+ * in full.
+ *
+ * mvn test runs it. It exits with status 1 on a mismatch, which fails the build.
+ */
+public class CityMovesTest {
+
+    private static final int cityCount = 1000;
+
+    private static final int tours = 20;
+
+    /**
+     * How far a city moves, TSP's cityShiftAmount.
+     */
+    private static final int shift = 60;
+
+    public static void main(String[] args) {
+        SplittableRandom random = new SplittableRandom(args.length > 0 ? Long.parseLong(args[0]) : 5);
+        City[] original = new City[cityCount];
+        for (int i = 0; i < cityCount; i++) {
+            original[i] = new City(random.nextInt(600), random.nextInt(600));
+        }
+        int failures = 0;
+        for (DistanceMatrix.Mode mode : DistanceMatrix.Mode.values()) {
+            failures += check("MoveCities, " + mode, original, moveCities(original, random), mode, true, random);
+            failures += check("1% moved, " + mode, original, moveSome(original, cityCount / 100, random), mode, false, random);
+        }
+        if (failures > 0) {
+            System.out.println(failures + " mismatches");
+            System.exit(1);
+        }
+        System.out.println("CityMovesTest passed");
+    }
+
+    private static int check(String what, City[] from, City[] to, DistanceMatrix.Mode mode, boolean dense, SplittableRandom random) {
+        DistanceMatrix distances = new DistanceMatrix(from, mode);
+        Chromosome[] chromosomes = new Chromosome[tours];
+        for (int t = 0; t < tours; t++) {
+            chromosomes[t] = new Chromosome(distances, shuffledTour(random));
+            //half the tours know their positions, so both ways of finding moved edges are used
+            if (t % 2 == 0) {
+                chromosomes[t].positions();
+            }
+        }
+        TourPool pool = new TourPool(tours, cityCount, random);
+        pool.load(chromosomes);
+
+        CityMoves moves = new CityMoves(distances, to);
+        if (moves.isDense() != dense) {
+            System.out.println(what + ": " + moves.size() + " of " + cityCount + " cities moved, expected a "
+                    + (dense ? "dense" : "sparse") + " move");
+            return 1;
+        }
+        moves.commit();
+        moves.adjust(chromosomes);
+        pool.adjustCosts(moves);
+
+        DistanceMatrix fresh = new DistanceMatrix(to, mode);
+        int failures = 0;
+        //the chromosomes and the pool slots, counted as evaluations by TSP
+        failures += expect(what + ", tours re-costed", dense ? 2 * tours : 0, moves.recostedTours());
+        int[] tour = new int[cityCount];
+        for (int t = 0; t < tours; t++) {
+            failures += expect(what + ", chromosome " + t, fresh.tourCost(chromosomes[t].cityList), chromosomes[t].getCost());
+            for (int i = 0; i < cityCount; i++) {
+                tour[i] = pool.getCity(t, i);
+            }
+            failures += expect(what + ", pool slot " + t, fresh.tourCost(tour), pool.getCost(t));
+        }
+        return failures;
+    }
+
+    private static int expect(String what, double expected, double actual) {
+        if (expected == actual) {
+            return 0;
+        }
+        System.out.println(what + ": expected " + expected + " but got " + actual);
+        return 1;
+    }
+
+    /**
+     * Shift each city in a random direction or not at all, as TSP.MoveCities does.
+     */
+    private static City[] moveCities(City[] cities, SplittableRandom random) {
+        City[] moved = new City[cities.length];
+        for (int i = 0; i < cities.length; i++) {
+            int x = cities[i].getx();
+            int y = cities[i].gety();
+            int direction = random.nextInt(5);
+            if (direction == 1) {
+                y += shift;
+            } else if (direction == 2) {
+                x += shift;
+            } else if (direction == 3) {
+                y -= shift;
+            } else if (direction == 4) {
+                x -= shift;
+            }
+            moved[i] = new City(x, y);
+        }
+        return moved;
+    }
+
+    /**
+     * Shift the given number of distinct cities, leaving the rest in place.
+     */
+    private static City[] moveSome(City[] cities, int count, SplittableRandom random) {
+        City[] moved = cities.clone();
+        int[] order = shuffledTour(random);
+        for (int m = 0; m < count; m++) {
+            int city = order[m];
+            moved[city] = new City(cities[city].getx() + shift, cities[city].gety());
+        }
+        return moved;
+    }
+
+    private static int[] shuffledTour(SplittableRandom random) {
+        int[] tour = new int[cityCount];
+        for (int i = 0; i < cityCount; i++) {
+            tour[i] = i;
+        }
+        for (int i = cityCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = tour[i];
+            tour[i] = tour[j];
+            tour[j] = temp;
+        }
+        return tour;
+    }
+}
@@ -0,0 +1,96 @@
+package tsp;
+
+import java.util.SplittableRandom;
+
+/**
+ * Checks that TourLengthKernel costs tours exactly as City.proximity does edge by edge.
+ *
+ * Random layouts of sizes around the kernel's block boundaries are costed through
+ * the kernel, with int and char genes at an offset, and through a DistanceMatrix
+ * with and without the kernel. Every result must equal the integer truncated sum
+ * of City.proximity over the tour's edges.
+ *
+ * mvn test runs it. It exits with status 1 on a mismatch, which fails the build.
+ */
+public class TourLengthKernelTest {
+
+    private static final int[] sizes = {1, 2, 3, 4, 255, 256, 257, 511, 512, 513, 4000, 20000};
+
+    private static final int toursPerSize = 5;
+
+    /**
+     * Room left in front of each tour, so offsets are exercised.
+     */
+    private static final int offset = 7;
+
+    public static void main(String[] args) {
+        SplittableRandom random = new SplittableRandom(args.length > 0 ? Long.parseLong(args[0]) : 3);
+        int failures = 0;
+        for (int n : sizes) {
+            //coordinates up to 30000 apart, so squared differences use most of an int
+            City[] cities = new City[n];
+            int[] coordinates = new int[2 * n];
+            for (int i = 0; i < n; i++) {
+                cities[i] = new City(random.nextInt(30000) - 15000, random.nextInt(30000) - 15000);
+                coordinates[2 * i] = cities[i].getx();
+                coordinates[2 * i + 1] = cities[i].gety();
+            }
+            DistanceMatrix distances = new DistanceMatrix(cities, DistanceMatrix.Mode.ON_THE_FLY);
+
+            int[] genes = new int[offset + n];
+            char[] compactGenes = new char[offset + n];
+            for (int i = 0; i < n; i++) {
+                genes[offset + i] = i;
+            }
+            for (int t = 0; t < toursPerSize; t++) {
+                shuffle(genes, offset, n, random);
+                for (int i = 0; i < n; i++) {
+                    compactGenes[offset + i] = (char) genes[offset + i];
+                }
+                double expected = proximitySum(cities, genes, offset, n);
+
+                TourLengthKernel kernel = TourLengthKernel.forThread();
+                failures += expect("kernel, int genes", n, expected, kernel.length(coordinates, genes, offset, n));
+                failures += expect("kernel, char genes", n, expected, kernel.length(coordinates, compactGenes, offset, n));
+                failures += expect("scalar", n, expected, TourLengthKernel.scalarLength(coordinates, genes, offset, n));
+                distances.useBlockedKernel(true);
+                failures += expect("matrix, blocked", n, expected, distances.tourCost(genes, offset, n));
+                distances.useBlockedKernel(false);
+                failures += expect("matrix, edge by edge", n, expected, distances.tourCost(genes, offset, n));
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " mismatches");
+            System.exit(1);
+        }
+        System.out.println("TourLengthKernelTest passed");
+    }
+
+    private static int expect(String what, int n, double expected, double actual) {
+        if (expected == actual) {
+            return 0;
+        }
+        System.out.println(what + " on " + n + " cities: expected " + expected + " but got " + actual);
+        return 1;
+    }
+
+    /**
+     * The cost of the tour as Chromosome.calculateCost used to work it out from the cities.
+     */
+    private static double proximitySum(City[] cities, int[] genes, int offset, int n) {
+        double cost = 0;
+        for (int i = 0; i < n; i++) {
+            cost += cities[genes[offset + i]].proximity(cities[genes[offset + (i + 1) % n]]);
+        }
+        return n == 1 ? 0 : cost;
+    }
+
+    private static void shuffle(int[] genes, int offset, int n, SplittableRandom random) {
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = genes[offset + i];
+            genes[offset + i] = genes[offset + j];
+            genes[offset + j] = temp;
+        }
+    }
+}